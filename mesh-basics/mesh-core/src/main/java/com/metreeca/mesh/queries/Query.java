@@ -27,12 +27,14 @@ import java.util.*;
 import java.util.Map.Entry;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static com.metreeca.mesh.Value.*;
 import static com.metreeca.mesh.queries.Expression.expression;
 import static com.metreeca.shim.Collections.*;
 import static com.metreeca.shim.Exceptions.error;
+import static com.metreeca.shim.URIs.base;
 
 import static java.lang.Integer.parseInt;
 import static java.lang.String.format;
@@ -41,6 +43,7 @@ import static java.util.Locale.ROOT;
 import static java.util.Objects.requireNonNull;
 import static java.util.function.Predicate.not;
 import static java.util.regex.Pattern.compile;
+import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toMap;
 
 /**
@@ -55,6 +58,8 @@ import static java.util.stream.Collectors.toMap;
  * @param criteria the map of expression/criterion pairs defining query filters and sort order
  * @param offset   the zero-based starting index for paginated results
  * @param limit    the maximum number of items to be returned (0 for unlimited)
+ * @param cursor   the {@linkplain #keys() sort key} values of the last item of the previous page for keyset pagination
+ *                 (empty for offset-based pagination)
  */
 public final record Query(
 
@@ -62,10 +67,16 @@ public final record Query(
         Map<Expression, Criterion> criteria,
 
         int offset,
-        int limit
+        int limit,
+
+        List<Value> cursor
 
 ) {
 
+    private static final String TOKEN="~";
+    private static final String TOKEN_NIL="!";
+    private static final String TOKEN_SEPARATOR=".";
+
     private static final Pattern PAIR_PATTERN=compile("&?(?<label>[^=&]*)(?:=(?<value>[^&]*))?");
 
     private static final Query EMPTY=new Query(
@@ -74,7 +85,9 @@ public final record Query(
             map(),
 
             0,
-            0
+            0,
+
+            list()
 
     );
 
@@ -142,7 +155,7 @@ public final record Query(
      *   <li>{@code field>=value} - greater than or equal filter</li>
      *   <li>{@code ~field=value} - pattern matching filter</li>
      *   <li>{@code ^field=value} - sort order (increasing, decreasing, or numeric)</li>
-     *   <li>{@code @=value} - pagination offset</li>
+     *   <li>{@code @=value} - pagination offset or {@linkplain #token() continuation token}</li>
      *   <li>{@code #=value} - pagination limit</li>
      * </ul>
      *
@@ -182,6 +195,8 @@ public final record Query(
         int offset=0;
         int limit=0;
 
+        String token="";
+
         for (
                 final Matcher matcher=PAIR_PATTERN.matcher(query);
                 matcher.lookingAt() && matcher.start() < query.length();
@@ -238,7 +253,7 @@ public final record Query(
 
                 } else if ( label.equals("@") ) {
 
-                    offset=parseInt(value);
+                    if ( value.startsWith(TOKEN) ) { token=value; } else { offset=parseInt(value); }
 
                 } else if ( label.equals("#") ) {
 
@@ -280,12 +295,33 @@ public final record Query(
                 (criterion == null ? Criterion.criterion() : criterion).any(values)
         ));
 
-        return new Query(object(Value.shape(shape)), criteria, offset, limit);
+        final Query parsed=new Query(object(Value.shape(shape)), criteria, offset, limit);
+
+        try {
+
+            return token.isEmpty() ? parsed : parsed.token(token);
+
+        } catch ( final IllegalArgumentException e ) {
+
+            throw new ValueException(e.getMessage(), e);
+
+        }
     }
 
 
     //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
+    /**
+     * Creates an offset-based query.
+     *
+     * @param model    the value acting as the query model
+     * @param criteria the map of expression/criterion pairs defining query filters and sort order
+     * @param offset   the zero-based starting index for paginated results
+     * @param limit    the maximum number of items to be returned (0 for unlimited)
+     *
+     * @throws NullPointerException     if either {@code model} or {@code criteria} is {@code null}
+     * @throws IllegalArgumentException if either {@code offset} or {@code limit} is negative
+     */
     public Query(
 
             final Value model,
@@ -294,6 +330,20 @@ public final record Query(
             final int offset,
             final int limit
 
+    ) {
+        this(model, criteria, offset, limit, list());
+    }
+
+    public Query(
+
+            final Value model,
+            final Map<Expression, Criterion> criteria,
+
+            final int offset,
+            final int limit,
+
+            final List<Value> cursor
+
     ) {
 
         if ( model == null ) {
@@ -312,6 +362,10 @@ public final record Query(
             throw new IllegalArgumentException("negative limit");
         }
 
+        if ( cursor == null || cursor.stream().anyMatch(Objects::isNull) ) {
+            throw new NullPointerException("null cursor");
+        }
+
 
         this.model=model;
         this.criteria=criteria.entrySet().stream()
@@ -324,10 +378,7 @@ public final record Query(
                         LinkedHashMap::new
                 ));
 
-        final Shape shape=model.value(Specs.class)
-                .map(Specs::shape)
-                .or(model::shape)
-                .orElseGet(Shape::shape);
+        final Shape shape=shape();
 
         criteria.keySet().forEach(expression -> {
 
@@ -342,6 +393,65 @@ public final record Query(
         this.offset=offset;
         this.limit=limit;
 
+        this.cursor=list(cursor);
+
+        if ( !cursor.isEmpty() ) {
+
+            if ( this.criteria.values().stream().anyMatch(criterion -> criterion.focus().isPresent()) ) {
+                throw new IllegalArgumentException("cursor on focused query");
+            }
+
+            final List<Expression> keys=keys();
+
+            if ( keys.stream().anyMatch(Expression::isAggregate) ) {
+                throw new IllegalArgumentException(format("cursor on aggregate sort keys <%s>", keys));
+            }
+
+            if ( cursor.size() != keys.size() ) {
+                throw new IllegalArgumentException(format(
+                        "cursor size <%d> not matching sort keys <%s>", cursor.size(), keys
+                ));
+            }
+
+        }
+
+    }
+
+
+    /**
+     * Retrieves the sort keys.
+     *
+     * @return the list of expressions defining the total sort order of query results, that is the expressions with an
+     *         {@linkplain Criterion#order() order} criterion, sorted by decreasing absolute priority, followed by the
+     *         empty expression identifying the items themselves, unless already explicitly ordered
+     */
+    public List<Expression> keys() {
+
+        final List<Expression> keys=criteria.entrySet().stream()
+                .filter(entry -> entry.getValue().order().isPresent())
+                .sorted(Comparator
+                        .<Entry<Expression, Criterion>, Integer>comparing(entry -> Math.abs(entry.getValue().order().get()))
+                        .reversed()
+                )
+                .map(Entry::getKey)
+                .toList();
+
+        return keys.contains(expression()) ? keys : list(Stream.concat(keys.stream(), Stream.of(expression())));
+    }
+
+
+    /**
+     * Retrieves the continuation token.
+     *
+     * @return an opaque string encoding the {@linkplain #cursor() cursor} of this query; empty if the query is
+     *         offset-based
+     */
+    public String token() {
+        return cursor.isEmpty() ? "" : cursor.stream()
+                .map(value -> value.isEmpty() ? TOKEN_NIL : Base64.getUrlEncoder().withoutPadding().encodeToString(
+                        value.text().map(text -> string(text.getValue())).orElse(value).encode(base()).getBytes(UTF_8)
+                ))
+                .collect(joining(TOKEN_SEPARATOR, TOKEN, ""));
     }
 
 
@@ -366,7 +476,9 @@ public final record Query(
                 criteria,
 
                 offset,
-                limit
+                limit,
+
+                cursor
 
         );
     }
@@ -429,7 +541,9 @@ public final record Query(
                 )),
 
                 offset,
-                limit
+                limit,
+
+                cursor
 
         );
     }
@@ -449,7 +563,9 @@ public final record Query(
                 criteria,
 
                 offset,
-                limit
+                limit,
+
+                cursor
 
         );
     }
@@ -468,9 +584,164 @@ public final record Query(
                 criteria,
 
                 offset,
-                limit
+                limit,
+
+                cursor
+
+        );
+    }
+
+
+    /**
+     * Configures the result cursor.
+     *
+     * @param cursor the {@linkplain #keys() sort key} values of the last item of the previous page; empty for
+     *               offset-based pagination
+     *
+     * @return a new query with the specified cursor
+     *
+     * @throws NullPointerException     if {@code cursor} is {@code null} or contains {@code null} elements
+     * @throws IllegalArgumentException if the size of {@code cursor} doesn't match the size of the sort keys or if the
+     *                                  query includes focus criteria or aggregate sort keys
+     */
+    public Query cursor(final List<? extends Valuable> cursor) {
+
+        if ( cursor == null || cursor.stream().anyMatch(Objects::isNull) ) {
+            throw new NullPointerException("null cursor");
+        }
+
+        return new Query(
+
+                model,
+                criteria,
+
+                offset,
+                limit,
+
+                list(cursor.stream().map(value -> requireNonNull(value.toValue(), "null supplied cursor value")))
 
         );
     }
 
+    /**
+     * Configures the result cursor from a continuation token.
+     *
+     * @param token an opaque continuation token, as returned by {@link #token()}; empty for offset-based pagination
+     *
+     * @return a new query with the cursor encoded by {@code token}
+     *
+     * @throws NullPointerException     if {@code token} is {@code null}
+     * @throws IllegalArgumentException if {@code token} is malformed or doesn't match the sort keys of this query
+     */
+    public Query token(final String token) {
+
+        if ( token == null ) {
+            throw new NullPointerException("null token");
+        }
+
+        if ( token.isEmpty() ) { return cursor(list()); } else if ( !token.startsWith(TOKEN) ) {
+
+            throw new IllegalArgumentException(format("malformed continuation token <%s>", token));
+
+        } else {
+
+            final Shape shape=shape();
+
+            final List<Expression> keys=keys();
+            final String[] values=token.substring(TOKEN.length()).split(Pattern.quote(TOKEN_SEPARATOR), -1);
+
+            if ( values.length != keys.size() ) {
+                throw new IllegalArgumentException(format("malformed continuation token <%s>", token));
+            }
+
+            try {
+
+                return cursor(list(IntStream.range(0, values.length).mapToObj(index -> {
+
+                    final String value=values[index];
+
+                    if ( value.equals(TOKEN_NIL) ) { return Nil(); } else {
+
+                        final Value datatype=datatype(keys.get(index), shape);
+                        final String encoded=new String(Base64.getUrlDecoder().decode(value), UTF_8);
+
+                        return datatype.decode(encoded, base()).orElseThrow(() ->
+                                new IllegalArgumentException(format("malformed continuation token <%s>", token))
+                        );
+
+                    }
+
+                })));
+
+            } catch ( final UnsupportedOperationException e ) {
+
+                throw new IllegalArgumentException(format("malformed continuation token <%s>", token), e);
+
+            }
+
+        }
+    }
+
+    /**
+     * Configures the result cursor to fetch the page following an item.
+     *
+     * <p>Sort key values are extracted from the fields of {@code item} along the paths of the sort keys, which must
+     * be included in the returned items and may not be computed.</p>
+     *
+     * @param item the last item of the current page
+     *
+     * @return a new query with a zero offset and the cursor positioned after {@code item}
+     *
+     * @throws NullPointerException     if {@code item} is {@code null}
+     * @throws IllegalArgumentException if a sort key is computed or if its value in {@code item} is an array
+     */
+    public Query next(final Valuable item) {
+
+        if ( item == null ) {
+            throw new NullPointerException("null item");
+        }
+
+        final Value value=requireNonNull(item.toValue(), "null supplied item");
+
+        return offset(0).cursor(list(keys().stream().map(key -> {
+
+            if ( key.isComputed() ) {
+                throw new IllegalArgumentException(format("computed sort key <%s>", key));
+            }
+
+            Value target=value;
+
+            for (final String step : key.path()) { target=target.get(step); }
+
+            if ( target.array().isPresent() ) {
+                throw new IllegalArgumentException(format("multiple values for sort key <%s>", key));
+            }
+
+            return target.object().isPresent()
+                    ? target.id().map(Value::uri).orElseGet(Value::Nil)
+                    : target;
+
+        })));
+    }
+
+
+    //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private Shape shape() {
+        return model.value(Specs.class)
+                .map(Specs::shape)
+                .or(model::shape)
+                .orElseGet(Shape::shape);
+    }
+
+    private static Value datatype(final Expression key, final Shape shape) {
+
+        final Value datatype=key.path().isEmpty() ? URI()
+                : key.apply(shape).datatype().orElseGet(Value::String);
+
+        return datatype.equals(Object()) ? URI()
+                : datatype.equals(Text()) ? String()
+                : datatype;
+    }
+
 }
@@ -25,15 +25,19 @@ import org.junit.jupiter.api.Test;
 
 import static com.metreeca.mesh.Value.Integer;
 import static com.metreeca.mesh.Value.Nil;
+import static com.metreeca.mesh.Value.field;
+import static com.metreeca.mesh.Value.id;
 import static com.metreeca.mesh.Value.integer;
 import static com.metreeca.mesh.Value.object;
 import static com.metreeca.mesh.Value.shape;
 import static com.metreeca.mesh.Value.string;
+import static com.metreeca.mesh.Value.uri;
 import static com.metreeca.mesh.queries.Criterion.criterion;
 import static com.metreeca.mesh.queries.Expression.expression;
 import static com.metreeca.mesh.queries.Query.query;
 import static com.metreeca.mesh.shapes.Property.property;
 import static com.metreeca.mesh.shapes.Shape.shape;
+import static com.metreeca.shim.Collections.list;
 import static com.metreeca.shim.Collections.set;
 import static com.metreeca.shim.URIs.base;
 
@@ -172,6 +176,20 @@ final class QueryTest {
         }
 
 
+        @Test void testDecodeContinuationToken() {
+
+            final Query query=parse("^x=increasing").cursor(list(string("value"), uri(base().resolve("/item"))));
+
+            assertThat(parse("^x=increasing&@="+query.token()).cursor())
+                    .isEqualTo(query.cursor());
+        }
+
+        @Test void testReportMalformedContinuationToken() {
+            assertThatExceptionOfType(ValueException.class).isThrownBy(() -> parse("@=~x.y"));
+            assertThatExceptionOfType(ValueException.class).isThrownBy(() -> parse("^x=1&@=~!"));
+        }
+
+
         @Test void testDecodeLimit() {
             assertThat(parse("#=123").limit())
                     .isEqualTo(123);
@@ -194,6 +212,59 @@ final class QueryTest {
     }
 
 
+    @Nested
+    final class CursorTest {
+
+        private static final Shape shape=shape().property(property("x").forward(true));
+
+
+        @Test void testDefineSortKeys() {
+            assertThat(query(object(shape(shape))).where("x", criterion().order(-1)).keys())
+                    .containsExactly(expression().path("x"), expression());
+        }
+
+        @Test void testReportMismatchedCursors() {
+            assertThatIllegalArgumentException().isThrownBy(() -> query(object(shape(shape)))
+                    .where("x", criterion().order(1))
+                    .cursor(list(string("value")))
+            );
+        }
+
+        @Test void testReportCursorsOnFocusedQueries() {
+            assertThatIllegalArgumentException().isThrownBy(() -> query(object(shape(shape)))
+                    .where("x", criterion().focus(string("value")))
+                    .cursor(list(uri(base())))
+            );
+        }
+
+        @Test void testRoundTripTokens() {
+
+            final Query query=query(object(shape(shape)))
+                    .where("x", criterion().order(1))
+                    .cursor(list(Nil(), uri(base().resolve("/item"))));
+
+            assertThat(query.token(query.token()).cursor())
+                    .isEqualTo(query.cursor());
+        }
+
+        @Test void testPositionAfterItems() {
+
+            final Query query=query(object(shape(shape)))
+                    .where("x", criterion().order(1))
+                    .offset(10);
+
+            final Query next=query.next(object(
+                    id(base().resolve("/item")),
+                    field("x", string("value"))
+            ));
+
+            assertThat(next.offset()).isZero();
+            assertThat(next.cursor()).containsExactly(string("value"), uri(base().resolve("/item")));
+        }
+
+    }
+
+
     @Nested
     final class ConstructorTest {
 
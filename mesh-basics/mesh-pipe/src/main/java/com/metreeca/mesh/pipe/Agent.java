@@ -836,65 +836,82 @@ public final class Agent {
             throw new IllegalArgumentException(format("relative resource URI <%s>", resource));
         }
 
-        if ( content != null && !content.equals(JSON) ) {
+        final AgentEvent event=new AgentEvent();
+        final AgentResponse target=event.monitor(response);
 
-            response.status(UNSUPPORTED_MEDIA_TYPE);
-            response.header(ACCEPT, JSON);
+        event.begin();
 
-        } else {
+        boolean failed=true;
 
-            // !!! HEAD
+        try {
 
-            if ( method.equals(GET) && retriever != null ) {
+            if ( content != null && !content.equals(JSON) ) {
 
-                retriever.accept(request, response);
+                target.status(UNSUPPORTED_MEDIA_TYPE);
+                target.header(ACCEPT, JSON);
 
-            } else if ( method.equals(POST) && creator != null ) {
+            } else {
 
-                creator.accept(request, response);
+                // !!! HEAD
 
-            } else if ( method.equals(PUT) && updater != null ) {
+                if ( method.equals(GET) && retriever != null ) {
 
-                updater.accept(request, response);
+                    retriever.accept(request, target);
 
-            } else if ( method.equals(PATCH) && mutator != null ) {
+                } else if ( method.equals(POST) && creator != null ) {
 
-                mutator.accept(request, response);
+                    creator.accept(request, target);
 
-            } else if ( method.equals(DELETE) && deleter != null ) {
+                } else if ( method.equals(PUT) && updater != null ) {
 
-                deleter.accept(request, response);
+                    updater.accept(request, target);
 
-            } else {
+                } else if ( method.equals(PATCH) && mutator != null ) {
 
-                Optional.of(Map
-                                .ofEntries(
-                                        entry(GET, retriever != null),
-                                        entry(POST, creator != null),
-                                        entry(PUT, updater != null),
-                                        entry(PATCH, mutator != null),
-                                        entry(DELETE, deleter != null)
-                                )
-                                .entrySet()
-                                .stream()
-                                .filter(Entry::getValue)
-                                .map(Entry::getKey)
-                                .toList()
-                        )
-                        .filter(not(List::isEmpty))
-                        .ifPresentOrElse(
+                    mutator.accept(request, target);
 
-                                methods -> {
-                                    response.status(METHOD_NOT_ALLOWED);
-                                    response.header(ALLOW, join(", ", methods));
-                                },
+                } else if ( method.equals(DELETE) && deleter != null ) {
 
-                                () -> response.status(FORBIDDEN)
+                    deleter.accept(request, target);
 
-                        );
+                } else {
+
+                    Optional.of(Map
+                                    .ofEntries(
+                                            entry(GET, retriever != null),
+                                            entry(POST, creator != null),
+                                            entry(PUT, updater != null),
+                                            entry(PATCH, mutator != null),
+                                            entry(DELETE, deleter != null)
+                                    )
+                                    .entrySet()
+                                    .stream()
+                                    .filter(Entry::getValue)
+                                    .map(Entry::getKey)
+                                    .toList()
+                            )
+                            .filter(not(List::isEmpty))
+                            .ifPresentOrElse(
+
+                                    methods -> {
+                                        target.status(METHOD_NOT_ALLOWED);
+                                        target.header(ALLOW, join(", ", methods));
+                                    },
+
+                                    () -> target.status(FORBIDDEN)
+
+                            );
+
+                }
 
             }
 
+            failed=false;
+
+        } finally {
+
+            event.commit(method, resource, failed);
+
         }
 
     }
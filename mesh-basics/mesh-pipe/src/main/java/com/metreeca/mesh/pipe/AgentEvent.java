@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2022-2025 Metreeca srl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.metreeca.mesh.pipe;
+
+import jdk.jfr.*;
+
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.function.Consumer;
+
+/**
+ * Agent request flight recorder event.
+ *
+ * <p>Records the processing of a request by an {@linkplain Agent agent}; request details are collected only if the
+ * event is enabled in the active recording.</p>
+ */
+@Name("com.metreeca.mesh.pipe.Agent")
+@Label("Agent Request")
+@Description("Request processed by a REST agent")
+@Category({ "Metreeca Mesh", "Agent" })
+@StackTrace(false)
+final class AgentEvent extends Event {
+
+    private static final int OK=200;
+    private static final int INTERNAL_SERVER_ERROR=500;
+
+
+    @Label("Method")
+    String method;
+
+    @Label("Resource")
+    String resource;
+
+    @Label("Status")
+    @Description("The response status code, defaulting to 200 if not configured and to 500 if processing failed")
+    int status;
+
+
+    /*
+     * Wraps a response to capture its status code, if the event is enabled.
+     */
+    AgentResponse monitor(final AgentResponse response) {
+        return !isEnabled() ? response : new AgentResponse() {
+
+            @Override public void status(final int code) {
+                status=code;
+                response.status(code);
+            }
+
+            @Override public void header(final String name, final String value) {
+                response.header(name, value);
+            }
+
+            @Override public void output(final Consumer<OutputStream> body) {
+                response.output(body);
+            }
+
+        };
+    }
+
+    /*
+     * Commits the event, recording the status the container would report if the request handler never configured one,
+     * that is 500 if processing failed with an exception and 200 otherwise.
+     */
+    void commit(final String method, final URI resource, final boolean failed) {
+        if ( shouldCommit() ) {
+
+            this.method=method;
+            this.resource=resource.toString();
+            this.status=status != 0 ? status : failed ? INTERNAL_SERVER_ERROR : OK;
+
+            commit();
+
+        }
+    }
+
+}
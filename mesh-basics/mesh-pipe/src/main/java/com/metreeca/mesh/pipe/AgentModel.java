@@ -130,7 +130,7 @@ final class AgentModel {
      *   <li>For arrays: Pairwise merging of elements by position</li>
      *   <li>For objects: When first object is empty, returns second object; otherwise merges
      *       properties from both objects with second taking precedence</li>
-     *   <li>For queries: Merges models, combines criteria, preserves offset from first query,
+     *   <li>For queries: Merges models, combines criteria, preserves offset and cursor from first query,
      *       and uses minimum non-zero limit</li>
      * </ul>
      *
@@ -364,7 +364,7 @@ final class AgentModel {
      * <ul>
      *   <li>Populates the query models</li>
      *   <li>Merges criteria using the Criterion.merge operation</li>
-     *   <li>Preserves offset from the first query</li>
+     *   <li>Preserves offset and cursor from the first query</li>
      *   <li>Takes minimum limit between both queries (unless one is zero)</li>
      * </ul>
      *
@@ -387,7 +387,9 @@ final class AgentModel {
                         ))),
 
                 x.offset(),
-                x.limit() == 0 ? y.limit() : y.limit() == 0 ? x.limit() : Math.min(x.limit(), y.limit())
+                x.limit() == 0 ? y.limit() : y.limit() == 0 ? x.limit() : Math.min(x.limit(), y.limit()),
+
+                x.cursor()
 
         ));
     }
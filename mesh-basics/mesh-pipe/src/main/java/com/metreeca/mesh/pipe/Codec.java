@@ -21,6 +21,9 @@ import com.metreeca.mesh.Value;
 import com.metreeca.mesh.shapes.Shape;
 
 import java.io.*;
+import java.util.stream.Stream;
+
+import static com.metreeca.mesh.Value.array;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
@@ -116,6 +119,35 @@ public interface Codec {
         throw new UnsupportedOperationException("encoding binary format to textual output");
     }
 
+    /**
+     * Encodes a stream of values as an array.
+     *
+     * <p>The default implementation collects the streamed values before encoding them; concrete codecs may write
+     * values to {@code target} as they are produced by the stream, keeping memory usage independent of the stream
+     * size.</p>
+     *
+     * @param target the target output
+     * @param values the values to be encoded as array items
+     *
+     * @return {@code target}
+     *
+     * @throws NullPointerException if either {@code target} or {@code values} is {@code null}
+     * @throws CodecException       if encoding fails
+     * @throws IOException          if an I/O error occurs while writing to {@code target}
+     */
+    default <A extends Appendable> A encode(final A target, final Stream<? extends Valuable> values) throws CodecException, IOException {
+
+        if ( target == null ) {
+            throw new NullPointerException("null target");
+        }
+
+        if ( values == null ) {
+            throw new NullPointerException("null values");
+        }
+
+        return encode(target, array(values));
+    }
+
     default <R extends Readable> Value decode(final R source, final Shape shape) throws CodecException, IOException {
 
         if ( source == null ) {
@@ -153,6 +185,37 @@ public interface Codec {
         }
     }
 
+    /**
+     * Encodes a stream of values as an array.
+     *
+     * @param target the target output
+     * @param values the values to be encoded as array items
+     *
+     * @return {@code target}
+     *
+     * @throws NullPointerException if either {@code target} or {@code values} is {@code null}
+     * @throws CodecException       if encoding fails
+     * @throws IOException          if an I/O error occurs while writing to {@code target}
+     * @see #encode(Appendable, Stream)
+     */
+    default <O extends OutputStream> O encode(final O target, final Stream<? extends Valuable> values) throws CodecException, IOException {
+
+        if ( target == null ) {
+            throw new NullPointerException("null target");
+        }
+
+        if ( values == null ) {
+            throw new NullPointerException("null values");
+        }
+
+        try ( final Writer writer=new OutputStreamWriter(target, UTF_8) ) {
+
+            encode(writer, values);
+
+            return target;
+        }
+    }
+
     default <I extends InputStream> Value decode(final I source, final Shape shape) throws CodecException, IOException {
 
         if ( source == null ) {
@@ -19,16 +19,22 @@ package com.metreeca.mesh.pipe;
 import com.metreeca.mesh.Valuable;
 import com.metreeca.mesh.Value;
 import com.metreeca.mesh.queries.Query;
+import com.metreeca.mesh.queries.Table;
 
-import java.util.Arrays;
-import java.util.List;
-import java.util.Locale;
-import java.util.Objects;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
+import static com.metreeca.mesh.Value.object;
 import static com.metreeca.shim.Collections.list;
 
+import static java.util.Objects.requireNonNull;
+
 /**
  * Persistence store.
  *
@@ -77,6 +83,88 @@ public interface Store extends AutoCloseable {
     Value retrieve(Valuable model, List<Locale> locales) throws StoreException;
 
 
+    /**
+     * Streams items matching the specified model and locales.
+     *
+     * @param model   the model specifying what to retrieve
+     * @param locales the preferred locales for localized content
+     *
+     * @return a stream of the retrieved items
+     *
+     * @throws NullPointerException if {@code model} or {@code locales} is {@code null}
+     * @see #stream(Valuable, List)
+     */
+    default Stream<Value> stream(final Valuable model, final Locale... locales) {
+
+        if ( model == null ) {
+            throw new NullPointerException("null model");
+        }
+
+        if ( locales == null || Arrays.stream(locales).anyMatch(Objects::isNull) ) {
+            throw new NullPointerException("null locales");
+        }
+
+        return stream(model, list(locales));
+    }
+
+    /**
+     * Streams items matching the specified model and locales.
+     *
+     * <p>Items are the elements of the retrieved array or, for {@linkplain Query query} values with a tabular model,
+     * object values holding the fields of each retrieved row. Other retrieved values are streamed as a single item.</p>
+     *
+     * <p>The default implementation {@linkplain #retrieve(Valuable, List) retrieves} all items before streaming them;
+     * concrete stores may deliver items incrementally as they are produced, holding resources, like connections or
+     * transactions, until the returned stream is closed.</p>
+     *
+     * <p>Callers must close the returned stream, preferably by consuming it in a try-with-resources block: streams
+     * abandoned without being closed may leak store resources.</p>
+     *
+     * @param model   a resource value, an array of resource values or a {@linkplain Query query} value
+     * @param locales the preferred locales for localized content
+     *
+     * @return a stream of the retrieved items
+     *
+     * @throws NullPointerException     if {@code model} or {@code locales} is {@code null}
+     * @throws IllegalArgumentException if {@code model} is not a supported value or if it is not valid
+     * @throws StoreException           if the store operation fails
+     */
+    default Stream<Value> stream(final Valuable model, final List<Locale> locales) throws StoreException {
+
+        if ( model == null ) {
+            throw new NullPointerException("null model");
+        }
+
+        if ( locales == null || locales.stream().anyMatch(Objects::isNull) ) {
+            throw new NullPointerException("null locales");
+        }
+
+        return items(retrieve(model, locales));
+    }
+
+
+    /**
+     * Splits a retrieved value into streamable items.
+     *
+     * @param value the retrieved value
+     *
+     * @return the elements of {@code value}, if it is an array, object values holding the fields of its rows, if it is
+     *         a {@linkplain Table table}, or {@code value} itself, otherwise
+     *
+     * @throws NullPointerException if {@code value} is {@code null}
+     */
+    static Stream<Value> items(final Value value) {
+
+        if ( value == null ) {
+            throw new NullPointerException("null value");
+        }
+
+        return value.array().map(List::stream)
+                .or(() -> value.value(Table.class).map(table -> table.rows().stream().map(row -> object(row.fields()))))
+                .orElseGet(() -> Stream.of(value));
+    }
+
+
     /**
      * Creates new resources in the store.
      *
@@ -153,6 +241,75 @@ public interface Store extends AutoCloseable {
      */
     int insert(final Valuable value) throws StoreException;
 
+    /**
+     * Streaming bulk insertion.
+     *
+     * <p>Equivalent to {@linkplain #insert(Stream, IntConsumer)} with a no-op progress callback.</p>
+     *
+     * @param values a stream of resource values or arrays of resource values
+     *
+     * @return the number of inserted resources
+     *
+     * @throws NullPointerException     if {@code values} is {@code null} or contains {@code null} elements
+     * @throws IllegalArgumentException if  {@code values} contains unsupported values or values that are not
+     *                                  {@linkplain Value#validate() valid}
+     * @throws StoreException           if the store is not able to complete the operation
+     */
+    default int insert(final Stream<? extends Valuable> values) throws StoreException {
+
+        if ( values == null ) {
+            throw new NullPointerException("null values");
+        }
+
+        return insert(values, inserted -> { });
+    }
+
+    /**
+     * Streaming bulk insertion.
+     *
+     * <p>Resources are {@linkplain #insert(Valuable) inserted} as they are pulled from the stream, without
+     * materializing the whole stream in memory; the default implementation inserts each stream item in turn within a
+     * single {@linkplain #execute(Function) transaction}, but concrete stores may commit items in consecutive chunks to
+     * support imports exceeding available transaction resources.</p>
+     *
+     * @param values   a stream of resource values or arrays of resource values
+     * @param progress a callback periodically notified with the total number of resources inserted so far
+     *
+     * @return the number of inserted resources
+     *
+     * @throws NullPointerException     if either {@code values} or {@code progress} is {@code null} or if
+     *                                  {@code values} contains {@code null} elements
+     * @throws IllegalArgumentException if  {@code values} contains unsupported values or values that are not
+     *                                  {@linkplain Value#validate() valid}
+     * @throws StoreException           if the store is not able to complete the operation
+     */
+    default int insert(final Stream<? extends Valuable> values, final IntConsumer progress) throws StoreException {
+
+        if ( values == null ) {
+            throw new NullPointerException("null values");
+        }
+
+        if ( progress == null ) {
+            throw new NullPointerException("null progress");
+        }
+
+        return execute(store -> {
+
+            int inserted=0;
+
+            for (final Iterator<? extends Valuable> iterator=values.iterator(); iterator.hasNext(); ) {
+
+                inserted+=store.insert(requireNonNull(iterator.next(), "null value"));
+
+                progress.accept(inserted);
+
+            }
+
+            return inserted;
+
+        });
+    }
+
     /**
      * Bulk removal.
      *
@@ -197,6 +354,209 @@ public interface Store extends AutoCloseable {
     int modify(final Valuable insert, final Valuable remove) throws StoreException;
 
 
+    //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Asynchronously retrieves data matching the specified model and locales.
+     *
+     * @param model   the model specifying what to retrieve
+     * @param locales the preferred locales for localized content
+     *
+     * @return a stage completing with the retrieved data
+     *
+     * @throws NullPointerException if {@code model} or {@code locales} is {@code null}
+     * @see #retrieve(Valuable, Locale...)
+     */
+    default CompletionStage<Value> retrieveAsync(final Valuable model, final Locale... locales) {
+
+        if ( model == null ) {
+            throw new NullPointerException("null model");
+        }
+
+        if ( locales == null || Arrays.stream(locales).anyMatch(Objects::isNull) ) {
+            throw new NullPointerException("null locales");
+        }
+
+        return retrieveAsync(model, list(locales));
+    }
+
+    /**
+     * Asynchronously retrieves data matching the specified model and locales.
+     *
+     * <p>The default implementation executes {@linkplain #retrieve(Valuable, List) retrieve} on a virtual thread;
+     * concrete stores may provide native non-blocking implementations.</p>
+     *
+     * @param model   a resource value, an array of resource values or a {@linkplain Query query} value
+     * @param locales the preferred locales for localized content
+     *
+     * @return a stage completing with the retrieved data or exceptionally with the exception thrown by the
+     *         synchronous operation
+     *
+     * @throws NullPointerException if {@code model} or {@code locales} is {@code null}
+     * @see #retrieve(Valuable, List)
+     */
+    default CompletionStage<Value> retrieveAsync(final Valuable model, final List<Locale> locales) {
+
+        if ( model == null ) {
+            throw new NullPointerException("null model");
+        }
+
+        if ( locales == null || locales.stream().anyMatch(Objects::isNull) ) {
+            throw new NullPointerException("null locales");
+        }
+
+        return async(() -> retrieve(model, locales));
+    }
+
+
+    /**
+     * Asynchronously creates new resources in the store.
+     *
+     * @param value a resource value or an array of resource values
+     *
+     * @return a stage completing with the number of created resources
+     *
+     * @throws NullPointerException if {@code value} is {@code null}
+     * @see #create(Valuable)
+     */
+    default CompletionStage<Integer> createAsync(final Valuable value) {
+
+        if ( value == null ) {
+            throw new NullPointerException("null value");
+        }
+
+        return async(() -> create(value));
+    }
+
+    /**
+     * Asynchronously updates existing resources in the store.
+     *
+     * @param value a resource value or an array of resource values
+     *
+     * @return a stage completing with the number of updated resources
+     *
+     * @throws NullPointerException if {@code value} is {@code null}
+     * @see #update(Valuable)
+     */
+    default CompletionStage<Integer> updateAsync(final Valuable value) {
+
+        if ( value == null ) {
+            throw new NullPointerException("null value");
+        }
+
+        return async(() -> update(value));
+    }
+
+    /**
+     * Asynchronously and partially updates existing resources in the store.
+     *
+     * @param value a resource value or an array of resource values with partial data
+     *
+     * @return a stage completing with the number of mutated resources
+     *
+     * @throws NullPointerException if {@code value} is {@code null}
+     * @see #mutate(Valuable)
+     */
+    default CompletionStage<Integer> mutateAsync(final Valuable value) {
+
+        if ( value == null ) {
+            throw new NullPointerException("null value");
+        }
+
+        return async(() -> mutate(value));
+    }
+
+    /**
+     * Asynchronously deletes resources from the store.
+     *
+     * @param value a resource value, an array of resource values or a {@linkplain Query query} value returning an array
+     *              of resource values
+     *
+     * @return a stage completing with the number of deleted resources
+     *
+     * @throws NullPointerException if {@code value} is {@code null}
+     * @see #delete(Valuable)
+     */
+    default CompletionStage<Integer> deleteAsync(final Valuable value) {
+
+        if ( value == null ) {
+            throw new NullPointerException("null value");
+        }
+
+        return async(() -> delete(value));
+    }
+
+
+    /**
+     * Asynchronous bulk insertion.
+     *
+     * @param value a resource value or an array of resource values
+     *
+     * @return a stage completing with the number of inserted resources
+     *
+     * @throws NullPointerException if {@code value} is {@code null}
+     * @see #insert(Valuable)
+     */
+    default CompletionStage<Integer> insertAsync(final Valuable value) {
+
+        if ( value == null ) {
+            throw new NullPointerException("null value");
+        }
+
+        return async(() -> insert(value));
+    }
+
+    /**
+     * Asynchronous bulk removal.
+     *
+     * @param value a resource value, an array of resource values or a {@linkplain Query query} value returning an array
+     *              of resource values
+     *
+     * @return a stage completing with the number of removed resources
+     *
+     * @throws NullPointerException if {@code value} is {@code null}
+     * @see #remove(Valuable)
+     */
+    default CompletionStage<Integer> removeAsync(final Valuable value) {
+
+        if ( value == null ) {
+            throw new NullPointerException("null value");
+        }
+
+        return async(() -> remove(value));
+    }
+
+    /**
+     * Asynchronous bulk modification.
+     *
+     * @param insert a resource value or an array of resource values
+     * @param remove a resource value, an array of resource values or a {@linkplain Query query} value returning an
+     *               array of resource values
+     *
+     * @return a stage completing with the number of modified resources
+     *
+     * @throws NullPointerException either {@code remove} or {@code insert} is {@code null}
+     * @see #modify(Valuable, Valuable)
+     */
+    default CompletionStage<Integer> modifyAsync(final Valuable insert, final Valuable remove) {
+
+        if ( insert == null ) {
+            throw new NullPointerException("null insert");
+        }
+
+        if ( remove == null ) {
+            throw new NullPointerException("null remove");
+        }
+
+        return async(() -> modify(insert, remove));
+    }
+
+
+    private static <V> CompletionStage<V> async(final Supplier<V> task) {
+        return CompletableFuture.supplyAsync(task, command -> Thread.ofVirtual().start(command));
+    }
+
+
     //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
     /**
@@ -246,6 +606,30 @@ public interface Store extends AutoCloseable {
      */
     <V> V execute(Function<Store, V> task);
 
+    /**
+     * Executes a function within a store transaction, optionally declared as read-only.
+     *
+     * <p>Declaring a task read-only allows the store to execute it with lighter isolation and locking; write
+     * operations performed by read-only tasks may not be isolated from concurrent transactions. The default
+     * implementation ignores the declaration and delegates to {@link #execute(Function)}.</p>
+     *
+     * @param readonly {@code true} if the task performs only read operations
+     * @param task     the function to execute
+     * @param <V>      the return type
+     *
+     * @return the result of the function
+     *
+     * @throws NullPointerException if {@code task} is {@code null}
+     */
+    default <V> V execute(final boolean readonly, final Function<Store, V> task) {
+
+        if ( task == null ) {
+            throw new NullPointerException("null task");
+        }
+
+        return execute(task);
+    }
+
 
     //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
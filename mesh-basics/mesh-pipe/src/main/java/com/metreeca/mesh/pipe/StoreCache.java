@@ -0,0 +1,416 @@
+/*
+ * Copyright © 2022-2025 Metreeca srl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.metreeca.mesh.pipe;
+
+import com.metreeca.mesh.Valuable;
+import com.metreeca.mesh.Value;
+import com.metreeca.mesh.queries.Query;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
+
+import static com.metreeca.mesh.Value.Visitor;
+import static com.metreeca.shim.Collections.list;
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Caching store decorator.
+ *
+ * <p>Caches the values returned by {@linkplain Store#retrieve(Valuable, List) retrieval} operations on a delegate
+ * store, keyed on the retrieval model and locales. Cached values are evicted on a least-recently-used basis when the
+ * cache {@linkplain #size(int) size} is exceeded and expire after a configurable {@linkplain #ttl(Duration) time to
+ * live}.</p>
+ *
+ * <p>Write operations performed through the decorator invalidate:</p>
+ *
+ * <ul>
+ *     <li>cached values including or requested for any resource identified by the written values;</li>
+ *     <li>cached values retrieved with {@linkplain Query query} models, as new or removed resources may affect their
+ *     membership;</li>
+ *     <li>all cached values, if the extent of the write operation can't be statically determined, for instance when
+ *     deleting resources matched by a query.</li>
+ * </ul>
+ *
+ * <p>Retrievals executed inside {@linkplain #execute(Function) transactions} bypass the cache, so that uncommitted
+ * state is never cached. Changes performed on the delegate store bypassing the decorator are not tracked and become
+ * visible only after cached values expire: each store (for instance, each named graph context of a graph store)
+ * should be decorated independently.</p>
+ */
+public final class StoreCache implements Store {
+
+    private static final int SIZE=1_000;
+    private static final Duration TTL=Duration.ofMinutes(1);
+
+
+    //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private final Store store;
+
+    private final int size;
+    private final Duration ttl;
+
+    private final ThreadLocal<Changes> transaction=new ThreadLocal<>();
+
+    private final Map<Key, Entry> entries=new LinkedHashMap<>(16, 0.75f, true); // access order
+    private final Map<URI, Set<Key>> index=new HashMap<>();
+
+    private long generation; // guarded by entries
+
+
+    /**
+     * Creates a caching store decorator with default settings.
+     *
+     * <p>Caches up to {@value #SIZE} retrieved values for at most 1 minute.</p>
+     *
+     * @param store the delegate store
+     *
+     * @throws NullPointerException if {@code store} is {@code null}
+     */
+    public StoreCache(final Store store) {
+        this(store, SIZE, TTL);
+    }
+
+    private StoreCache(final Store store, final int size, final Duration ttl) {
+
+        if ( store == null ) {
+            throw new NullPointerException("null store");
+        }
+
+        if ( size < 1 ) {
+            throw new IllegalArgumentException(format("non-positive cache size <%d>", size));
+        }
+
+        if ( ttl == null ) {
+            throw new NullPointerException("null ttl");
+        }
+
+        if ( ttl.isNegative() || ttl.isZero() ) {
+            throw new IllegalArgumentException(format("non-positive ttl <%s>", ttl));
+        }
+
+        this.store=store;
+        this.size=size;
+        this.ttl=ttl;
+    }
+
+
+    /**
+     * Configures the cache size.
+     *
+     * @param size the maximum number of cached retrieved values
+     *
+     * @return a new caching store decorator with the specified size and an empty cache
+     *
+     * @throws IllegalArgumentException if {@code size} is not positive
+     */
+    public StoreCache size(final int size) {
+        return new StoreCache(store, size, ttl);
+    }
+
+    /**
+     * Configures the cache time to live.
+     *
+     * @param ttl the maximum time retrieved values are cached
+     *
+     * @return a new caching store decorator with the specified time to live and an empty cache
+     *
+     * @throws NullPointerException     if {@code ttl} is {@code null}
+     * @throws IllegalArgumentException if {@code ttl} is not positive
+     */
+    public StoreCache ttl(final Duration ttl) {
+        return new StoreCache(store, size, ttl);
+    }
+
+
+    //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public Value retrieve(final Valuable model, final List<Locale> locales) {
+
+        if ( model == null ) {
+            throw new NullPointerException("null model");
+        }
+
+        if ( locales == null || locales.stream().anyMatch(Objects::isNull) ) {
+            throw new NullPointerException("null locales");
+        }
+
+        final Value value=requireNonNull(model.toValue(), "null supplied model");
+
+        if ( transaction.get() != null ) { return store.retrieve(value, locales); } else {
+
+            final Key key=new Key(value, list(locales));
+            final long now=System.nanoTime();
+
+            final long current;
+
+            synchronized ( entries ) {
+
+                final Entry entry=entries.get(key);
+
+                if ( entry != null && entry.expires()-now > 0 ) { return entry.value(); }
+
+                if ( entry != null ) { evict(key); }
+
+                current=generation;
+
+            }
+
+            final Value retrieved=store.retrieve(value, locales);
+
+            synchronized ( entries ) {
+
+                if ( generation == current ) { // no concurrent write since retrieval started
+
+                    final Changes requested=new Changes().collect(value);
+
+                    // index under the model ids as well, so that missing resources are invalidated when created
+
+                    final Set<URI> ids=new Changes().collect(retrieved).merge(requested).ids;
+
+                    entries.put(key, new Entry(retrieved, now+ttl.toNanos(), ids, requested.all));
+                    ids.forEach(id -> index.computeIfAbsent(id, i -> new HashSet<>()).add(key));
+
+                    for (final Iterator<Key> keys=entries.keySet().iterator(); entries.size() > size; ) {
+                        evict(keys.next());
+                    }
+
+                }
+
+            }
+
+            return retrieved;
+
+        }
+    }
+
+
+    @Override
+    public int create(final Valuable value) {
+        try { return store.create(value); } finally { invalidate(value); }
+    }
+
+    @Override
+    public int update(final Valuable value) {
+        try { return store.update(value); } finally { invalidate(value); }
+    }
+
+    @Override
+    public int mutate(final Valuable value) {
+        try { return store.mutate(value); } finally { invalidate(value); }
+    }
+
+    @Override
+    public int delete(final Valuable value) {
+        try { return store.delete(value); } finally { invalidate(value); }
+    }
+
+
+    @Override
+    public int insert(final Valuable value) {
+        try { return store.insert(value); } finally { invalidate(value); }
+    }
+
+    @Override
+    public int insert(final Stream<? extends Valuable> values, final IntConsumer progress) {
+        try { return store.insert(values, progress); } finally { invalidate(new Changes().all()); }
+    }
+
+    @Override
+    public int remove(final Valuable value) {
+        try { return store.remove(value); } finally { invalidate(value); }
+    }
+
+    @Override
+    public int modify(final Valuable insert, final Valuable remove) {
+        try { return store.modify(insert, remove); } finally { invalidate(insert, remove); }
+    }
+
+
+    @Override
+    public <V> V execute(final Function<Store, V> task) {
+        return execute(false, task);
+    }
+
+    @Override
+    public <V> V execute(final boolean readonly, final Function<Store, V> task) {
+
+        if ( task == null ) {
+            throw new NullPointerException("null task");
+        }
+
+        if ( transaction.get() != null ) { return store.execute(readonly, delegate -> task.apply(this)); } else {
+
+            final Changes changes=new Changes();
+
+            transaction.set(changes);
+
+            try {
+
+                return store.execute(readonly, delegate -> task.apply(this));
+
+            } finally {
+
+                transaction.remove();
+
+                invalidate(changes); // invalidate again after commit/rollback
+
+            }
+
+        }
+    }
+
+
+    @Override
+    public void close() throws Exception {
+        try { store.close(); } finally { invalidate(new Changes().all()); }
+    }
+
+
+    //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private void invalidate(final Valuable... values) {
+
+        final Changes changes=new Changes();
+
+        for (final Valuable value : values) {
+            if ( value != null ) { changes.collect(value.toValue()); }
+        }
+
+        invalidate(changes);
+    }
+
+    private void invalidate(final Changes changes) {
+
+        Optional.ofNullable(transaction.get())
+                .filter(active -> active != changes)
+                .ifPresent(active -> active.merge(changes));
+
+        synchronized ( entries ) {
+
+            ++generation;
+
+            if ( changes.all ) {
+
+                entries.clear();
+                index.clear();
+
+            } else {
+
+                final Set<Key> keys=new HashSet<>();
+
+                entries.forEach((key, entry) -> {
+                    if ( entry.query() ) { keys.add(key); }
+                });
+
+                changes.ids.forEach(id -> keys.addAll(index.getOrDefault(id, Set.of())));
+
+                keys.forEach(this::evict);
+
+            }
+
+        }
+    }
+
+    private void evict(final Key key) {
+
+        final Entry entry=entries.remove(key);
+
+        if ( entry != null ) {
+            entry.ids().forEach(id -> index.computeIfPresent(id, (i, keys) -> {
+
+                keys.remove(key);
+
+                return keys.isEmpty() ? null : keys;
+
+            }));
+        }
+    }
+
+
+    //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private record Key(Value model, List<Locale> locales) { }
+
+    private record Entry(Value value, long expires, Set<URI> ids, boolean query) { }
+
+
+    /*
+     * Resources affected by a write operation or included in a retrieved value.
+     */
+    private static final class Changes {
+
+        private final Set<URI> ids=new HashSet<>();
+
+        private boolean all; // extent not statically known
+
+
+        private Changes all() {
+
+            all=true;
+
+            return this;
+        }
+
+        private Changes merge(final Changes changes) {
+
+            ids.addAll(changes.ids);
+            all|=changes.all;
+
+            return this;
+        }
+
+        private Changes collect(final Value value) {
+
+            value.accept(new Visitor<Void>() {
+
+                @Override public Void visit(final Value host, final Map<String, Value> fields) {
+
+                    host.id().ifPresent(ids::add);
+                    fields.values().forEach(v -> v.accept(this));
+
+                    return null;
+                }
+
+                @Override public Void visit(final Value host, final List<Value> values) {
+
+                    values.forEach(v -> v.accept(this));
+
+                    return null;
+                }
+
+                @Override public Void visit(final Value host, final Object object) {
+
+                    if ( host.value(Query.class).isPresent() ) { all=true; }
+
+                    return null;
+                }
+
+            });
+
+            return this;
+        }
+
+    }
+
+}
@@ -0,0 +1,591 @@
+/*
+ * Copyright © 2022-2025 Metreeca srl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.metreeca.mesh.pipe;
+
+import com.metreeca.mesh.Valuable;
+import com.metreeca.mesh.Value;
+import com.metreeca.mesh.queries.*;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static com.metreeca.mesh.Value.*;
+import static com.metreeca.shim.Collections.entry;
+import static com.metreeca.shim.Collections.list;
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+import static java.util.function.Predicate.not;
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * Federated store.
+ *
+ * <p>Partitions data across a set of delegate stores, for instance graph stores bound to different named graph
+ * contexts of the same repository. {@linkplain Store#retrieve(Valuable, List) Retrieval} operations are scattered to
+ * all partitions in parallel and partial results merged:</p>
+ *
+ * <ul>
+ *     <li>resource values are retrieved from the first partition holding them, merging results of nested
+ *     {@linkplain Query query} values across partitions;</li>
+ *     <li>query values are executed on each partition over the first {@code offset+limit} matches; merged items are
+ *     deduplicated, sorted according to the {@linkplain Query#keys() sort keys} of the query and windowed according to
+ *     its offset and limit.</li>
+ * </ul>
+ *
+ * <p>Merged items are sorted first on {@linkplain Criterion#focus() focus} values, as for single stores, and then on
+ * sort keys. Sort key and focus values are extracted from merged items along the paths of the sort keys, which must
+ * be included in the query model and may not be computed; tabular queries are sorted on the columns projecting sort
+ * keys. Queries with explicit sort keys or focus expressions not projected by the query model are rejected, as
+ * their merged items couldn't be sorted; queries with aggregate columns are not supported, as partial aggregates
+ * can't be merged.</p>
+ *
+ * <p>Write operations are routed as follows:</p>
+ *
+ * <ul>
+ *     <li>{@linkplain #create(Valuable) creations} and {@linkplain #insert(Valuable) insertions} are executed on the
+ *     partition selected for each resource by the configured {@linkplain #router(Function) router};</li>
+ *     <li>{@linkplain #update(Valuable) updates}, {@linkplain #mutate(Valuable) mutations},
+ *     {@linkplain #delete(Valuable) deletions} and {@linkplain #remove(Valuable) removals} are scattered to all
+ *     partitions;</li>
+ *     <li>{@linkplain #modify(Valuable, Valuable) modifications} are scattered to all partitions, each inserting only
+ *     the resources selected for it by the configured router.</li>
+ * </ul>
+ *
+ * <p>Partitions are not probed for the resources they already hold: routers must consistently select the same
+ * partition for the same resource, for instance on the basis of its id. Creations, insertions and modifications are
+ * rejected if no router is configured.</p>
+ *
+ * <p>{@linkplain #execute(Function) Transactions} are nested delegate transactions opened on the calling thread:
+ * partitions are accessed sequentially within transactions and commits are not atomic across partitions backed by
+ * independent repositories.</p>
+ */
+public final class StoreFederation implements Store {
+
+    private final List<Store> partitions;
+    private final Function<? super Value, ? extends Store> router; // null if no router is configured
+
+    private final ThreadLocal<Boolean> transaction=new ThreadLocal<>();
+
+
+    /**
+     * Creates a federated store.
+     *
+     * @param partitions the delegate stores
+     *
+     * @throws NullPointerException     if {@code partitions} is {@code null} or contains {@code null} elements
+     * @throws IllegalArgumentException if {@code partitions} is empty
+     */
+    public StoreFederation(final Store... partitions) {
+        this(Arrays.asList(requireNonNull(partitions, "null partitions")));
+    }
+
+    /**
+     * Creates a federated store.
+     *
+     * @param partitions the delegate stores
+     *
+     * @throws NullPointerException     if {@code partitions} is {@code null} or contains {@code null} elements
+     * @throws IllegalArgumentException if {@code partitions} is empty
+     */
+    public StoreFederation(final Collection<? extends Store> partitions) {
+
+        if ( partitions == null || partitions.stream().anyMatch(Objects::isNull) ) {
+            throw new NullPointerException("null partitions");
+        }
+
+        if ( partitions.isEmpty() ) {
+            throw new IllegalArgumentException("empty partitions");
+        }
+
+        this.partitions=list(partitions);
+        this.router=null;
+    }
+
+    private StoreFederation(final List<Store> partitions, final Function<? super Value, ? extends Store> router) {
+        this.partitions=partitions;
+        this.router=router;
+    }
+
+
+    /**
+     * Configures the partition router.
+     *
+     * @param router a function selecting the partition new resources are to be written to, among the delegate stores
+     *               of this federated store; must consistently return the same partition for the same resource
+     *
+     * @return a new federated store with the specified partition router
+     *
+     * @throws NullPointerException if {@code router} is {@code null}
+     */
+    public StoreFederation router(final Function<? super Value, ? extends Store> router) {
+
+        if ( router == null ) {
+            throw new NullPointerException("null router");
+        }
+
+        return new StoreFederation(partitions, router);
+    }
+
+
+    //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public Value retrieve(final Valuable model, final List<Locale> locales) {
+
+        if ( model == null ) {
+            throw new NullPointerException("null model");
+        }
+
+        if ( locales == null || locales.stream().anyMatch(Objects::isNull) ) {
+            throw new NullPointerException("null locales");
+        }
+
+        final Value value=requireNonNull(model.toValue(), "null supplied model");
+        final Value scattered=scatter(value);
+
+        return merge(value, gather(partitions,
+                partition -> partition.retrieve(scattered, locales),
+                partition -> partition.retrieveAsync(scattered, locales)
+        ));
+    }
+
+
+    @Override
+    public int create(final Valuable value) {
+
+        if ( value == null ) {
+            throw new NullPointerException("null value");
+        }
+
+        return route(requireNonNull(value.toValue(), "null supplied value")).entrySet().stream()
+                .mapToInt(entry -> entry.getKey().create(array(entry.getValue())))
+                .sum();
+    }
+
+    @Override
+    public int update(final Valuable value) {
+        return gather(partitions,
+                partition -> partition.update(value),
+                partition -> partition.updateAsync(value)
+        ).stream().mapToInt(Integer::intValue).sum();
+    }
+
+    @Override
+    public int mutate(final Valuable value) {
+        return gather(partitions,
+                partition -> partition.mutate(value),
+                partition -> partition.mutateAsync(value)
+        ).stream().mapToInt(Integer::intValue).sum();
+    }
+
+    @Override
+    public int delete(final Valuable value) {
+        return gather(partitions,
+                partition -> partition.delete(value),
+                partition -> partition.deleteAsync(value)
+        ).stream().mapToInt(Integer::intValue).sum();
+    }
+
+
+    @Override
+    public int insert(final Valuable value) {
+
+        if ( value == null ) {
+            throw new NullPointerException("null value");
+        }
+
+        return route(requireNonNull(value.toValue(), "null supplied value")).entrySet().stream()
+                .mapToInt(entry -> entry.getKey().insert(array(entry.getValue())))
+                .sum();
+    }
+
+    @Override
+    public int remove(final Valuable value) {
+        return gather(partitions,
+                partition -> partition.remove(value),
+                partition -> partition.removeAsync(value)
+        ).stream().mapToInt(Integer::intValue).max().orElse(0); // removals are not conditional on existence
+    }
+
+    @Override
+    public int modify(final Valuable insert, final Valuable remove) {
+
+        if ( insert == null ) {
+            throw new NullPointerException("null insert");
+        }
+
+        if ( remove == null ) {
+            throw new NullPointerException("null remove");
+        }
+
+        final Map<Store, List<Value>> routes=route(requireNonNull(insert.toValue(), "null supplied insert value"));
+
+        final Function<Store, List<Value>> inserted=partition -> routes.getOrDefault(partition, List.of());
+
+        final List<Integer> modified=gather(partitions,
+                partition -> partition.modify(array(inserted.apply(partition)), remove),
+                partition -> partition.modifyAsync(array(inserted.apply(partition)), remove)
+        );
+
+        final int insertions=routes.values().stream().mapToInt(List::size).sum();
+
+        final int removals=IntStream.range(0, partitions.size()) // removals are not conditional on existence
+                .map(index -> modified.get(index)-inserted.apply(partitions.get(index)).size())
+                .max()
+                .orElse(0);
+
+        return insertions+removals;
+    }
+
+
+    @Override
+    public <V> V execute(final Function<Store, V> task) {
+        return execute(false, task);
+    }
+
+    @Override
+    public <V> V execute(final boolean readonly, final Function<Store, V> task) {
+
+        if ( task == null ) {
+            throw new NullPointerException("null task");
+        }
+
+        if ( transaction.get() != null ) { return task.apply(this); } else {
+
+            transaction.set(true);
+
+            try {
+
+                return execute(0, readonly, task);
+
+            } finally {
+
+                transaction.remove();
+
+            }
+
+        }
+    }
+
+
+    @Override
+    public void close() throws Exception {
+
+        Exception exception=null;
+
+        for (final Store partition : partitions) {
+            try {
+
+                partition.close();
+
+            } catch ( final Exception e ) {
+
+                if ( exception == null ) { exception=e; } else { exception.addSuppressed(e); }
+
+            }
+        }
+
+        if ( exception != null ) { throw exception; }
+    }
+
+
+    //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private <V> V execute(final int index, final boolean readonly, final Function<Store, V> task) {
+        return index < partitions.size()
+                ? partitions.get(index).execute(readonly, partition -> execute(index+1, readonly, task))
+                : task.apply(this);
+    }
+
+    /*
+     * Executes a task on a set of partitions, in parallel unless a transaction is active on the calling thread.
+     */
+    private <V> List<V> gather(
+            final List<Store> partitions,
+            final Function<Store, V> sync,
+            final Function<Store, CompletionStage<V>> async
+    ) {
+
+        if ( transaction.get() != null ) { return list(partitions.stream().map(sync)); } else {
+
+            final List<CompletableFuture<V>> futures=list(partitions.stream()
+                    .map(partition -> async.apply(partition).toCompletableFuture())
+            );
+
+            try {
+
+                return list(futures.stream().map(CompletableFuture::join));
+
+            } catch ( final CompletionException e ) {
+
+                throw e.getCause() instanceof final RuntimeException cause ? cause : e;
+
+            }
+
+        }
+    }
+
+
+    /*
+     * Groups resources by the partition selected by the configured router.
+     */
+    private Map<Store, List<Value>> route(final Value value) {
+
+        if ( router == null ) {
+            throw new StoreException(format("undefined partition router for <%s>", value));
+        }
+
+        final Map<Store, List<Value>> routes=new LinkedHashMap<>();
+
+        for (final Value resource : value.array().orElseGet(() -> list(value))) {
+
+            final Store partition=router.apply(resource);
+
+            if ( partitions.stream().noneMatch(p -> p == partition) ) {
+                throw new StoreException(format("unknown partition <%s> for resource <%s>", partition, resource));
+            }
+
+            routes.computeIfAbsent(partition, p -> new ArrayList<>()).add(resource);
+
+        }
+
+        return routes;
+    }
+
+
+    //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /*
+     * Widens query windows to the first offset+limit matches, so that the global window may be computed after merging.
+     */
+    private Value scatter(final Value model) {
+        return model.value(Query.class).map(query -> {
+
+                    if ( query.model().value(Specs.class).stream()
+                            .flatMap(specs -> specs.columns().stream())
+                            .anyMatch(probe -> probe.expression().isAggregate())
+                    ) {
+                        throw new StoreException(format(
+                                "unsupported federated aggregate query <%s>", model
+                        ));
+                    }
+
+                    return value(query
+                            .offset(0)
+                            .limit(query.limit() > 0 ? query.offset()+query.limit() : 0)
+                    );
+
+                })
+
+                .or(() -> model.array().map(values -> array(values.stream().map(this::scatter))))
+                .or(() -> model.object().map(fields -> object(fields.entrySet().stream()
+                        .map(field -> entry(field.getKey(), scatter(field.getValue())))
+                )))
+
+                .orElse(model);
+    }
+
+    private Value merge(final Value model, final List<Value> results) {
+        return model.value(Query.class).map(query -> merge(query, results))
+
+                .or(() -> model.array().map(values -> array(IntStream.range(0, values.size()).mapToObj(index ->
+                        merge(values.get(index), list(results.stream().map(result -> result.get(index))))
+                ))))
+
+                .or(() -> model.object().map(fields -> {
+
+                    final List<Value> found=list(results.stream().filter(not(Value::isEmpty)));
+
+                    return found.isEmpty() ? results.getFirst() : object(found.getFirst().object()
+                            .orElseGet(Map::of)
+                            .entrySet()
+                            .stream()
+                            .map(field -> entry(field.getKey(), Optional.ofNullable(fields.get(field.getKey()))
+                                    .map(nested -> merge(nested, list(found.stream().map(result -> result.object()
+                                            .map(map -> map.getOrDefault(field.getKey(), Nil()))
+                                            .orElseGet(Value::Nil)
+                                    ))))
+                                    .orElseGet(field::getValue)
+                            ))
+                    );
+
+                }))
+
+                .orElseGet(results::getFirst);
+    }
+
+    private Value merge(final Query query, final List<Value> results) {
+        return query.model().value(Specs.class)
+
+                .map(specs -> value(new Table(list(window(query, results.stream()
+                        .flatMap(result -> result.value(Table.class).stream())
+                        .flatMap(table -> table.rows().stream())
+                        .distinct()
+                        .sorted(StoreFederation.<Tuple>comparator(query, expression -> specs.columns().stream()
+                                .filter(probe -> probe.expression().equals(expression))
+                                .findFirst()
+                                .<Function<Tuple, Value>>map(probe -> row -> row.value(probe.name())
+                                        .orElseGet(Value::Nil)
+                                )
+                        ))
+                )))))
+
+                .orElseGet(() -> array(list(window(query, results.stream()
+                        .flatMap(result -> result.array().stream().flatMap(List::stream))
+                        .filter(distinct())
+                        .sorted(StoreFederation.<Value>comparator(query, expression ->
+                                projected(query.model(), expression)
+                                        ? Optional.<Function<Value, Value>>of(item -> key(item, expression))
+                                        : Optional.empty()
+                        ))
+                ))));
+    }
+
+    private static <T> Stream<T> window(final Query query, final Stream<T> items) {
+        return query.limit() > 0
+                ? items.skip(query.offset()).limit(query.limit())
+                : items.skip(query.offset());
+    }
+
+    private static Predicate<Value> distinct() {
+
+        final Set<Object> visited=new HashSet<>();
+
+        return item -> visited.add(item.id().<Object>map(id -> id).orElse(item));
+    }
+
+
+    /*
+     * Creates a comparator sorting items first on focus values, as generated by single stores, and then on sort keys;
+     * explicit sort keys and focus expressions must be resolvable, whereas the implicit sort key on the items
+     * themselves is skipped if not projected.
+     */
+    private static <T> Comparator<T> comparator(
+            final Query query,
+            final Function<Expression, Optional<Function<T, Value>>> resolver
+    ) {
+
+        final Map<Expression, Criterion> criteria=query.criteria();
+
+        final Function<Expression, Function<T, Value>> resolve=expression -> resolver.apply(expression)
+                .orElseThrow(() -> new StoreException(format(
+                        "unprojected federated sort key <%s>", expression
+                )));
+
+        Comparator<T> comparator=(x, y) -> 0;
+
+        for (final Map.Entry<Expression, Criterion> entry : criteria.entrySet()) {
+
+            final Optional<Set<Value>> focus=entry.getValue().focus().map(values -> values.stream()
+                    .map(value -> value.object().isPresent() ? value.id().map(Value::uri).orElseGet(Value::Nil) : value)
+                    .collect(toSet())
+            );
+
+            if ( focus.isPresent() ) {
+
+                final Function<T, Value> value=resolve.apply(entry.getKey());
+
+                comparator=comparator.thenComparing(item -> !focus.get().contains(value.apply(item))); // focused first
+
+            }
+
+        }
+
+        for (final Expression key : query.keys()) {
+
+            final Optional<Integer> order=Optional.ofNullable(criteria.get(key)).flatMap(Criterion::order);
+            final Optional<Function<T, Value>> value=order.isPresent()
+                    ? Optional.of(resolve.apply(key))
+                    : resolver.apply(key);
+
+            if ( value.isPresent() ) {
+
+                final Comparator<T> ascending=(x, y) -> compare(value.get().apply(x), value.get().apply(y));
+
+                comparator=comparator.thenComparing(order.orElse(0) < 0 ? ascending.reversed() : ascending);
+
+            }
+
+        }
+
+        return comparator;
+    }
+
+    /*
+     * Compares sort key values, with unbound values sorting first in increasing order.
+     */
+    private static int compare(final Value x, final Value y) {
+
+        final Value xv=x.text().map(text -> string(text.getValue())).orElse(x);
+        final Value yv=y.text().map(text -> string(text.getValue())).orElse(y);
+
+        if ( xv.isEmpty() || yv.isEmpty() ) { return Boolean.compare(!xv.isEmpty(), !yv.isEmpty()); } else {
+
+            try {
+
+                return Value.compare(xv, yv);
+
+            } catch ( final IllegalArgumentException e ) { // incomparable values
+
+                return xv.toString().compareTo(yv.toString());
+
+            }
+
+        }
+    }
+
+    /*
+     * Checks if the value of a sort key may be extracted from items retrieved with a model, as in Query.next().
+     */
+    private static boolean projected(final Value model, final Expression key) {
+
+        if ( key.isComputed() ) { return false; } else {
+
+            Value target=model;
+
+            for (final String step : key.path()) { target=target.get(step); }
+
+            return target.array().isEmpty() && (target.object().isPresent()
+                    ? target.id().isPresent()
+                    : !target.equals(Nil())
+            );
+
+        }
+    }
+
+    /*
+     * Extracts the value of a sort key from an item, as in Query.next().
+     */
+    private static Value key(final Value item, final Expression key) {
+
+        Value target=item;
+
+        for (final String step : key.path()) { target=target.get(step); }
+
+        return target.object().isPresent() ? target.id().map(Value::uri).orElseGet(Value::Nil)
+                : target.array().isPresent() ? Nil()
+                : target;
+    }
+
+}
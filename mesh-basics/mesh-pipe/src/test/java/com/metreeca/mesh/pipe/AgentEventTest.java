@@ -0,0 +1,145 @@
+/*
+ * Copyright © 2022-2025 Metreeca srl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.metreeca.mesh.pipe;
+
+import com.metreeca.mesh.Value;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static com.metreeca.mesh.Value.object;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+final class AgentEventTest {
+
+    private static final String AGENT="com.metreeca.mesh.pipe.Agent";
+
+    private static final URI RESOURCE=URI.create("https://example.org/resource");
+
+
+    private static List<RecordedEvent> record(final int count, final Runnable task) throws InterruptedException {
+        try ( final RecordingStream stream=new RecordingStream() ) {
+
+            final BlockingQueue<RecordedEvent> events=new LinkedBlockingQueue<>();
+
+            stream.enable(AGENT).withoutThreshold();
+            stream.onEvent(AGENT, events::add);
+            stream.startAsync();
+
+            try { task.run(); } catch ( final RuntimeException ignored ) { }
+
+            final List<RecordedEvent> recorded=new ArrayList<>();
+
+            for (RecordedEvent event; recorded.size() < count && (event=events.poll(10, TimeUnit.SECONDS)) != null; ) {
+                recorded.add(event);
+            }
+
+            return recorded;
+
+        }
+    }
+
+
+    private static Agent agent() {
+        return new Agent(new Codec() { }, new StoreMock());
+    }
+
+    private static AgentRequest request(final String method) {
+        return new AgentRequest() {
+
+            @Override public String method() { return method; }
+
+            @Override public URI resource() { return RESOURCE; }
+
+            @Override public String query() { return ""; }
+
+            @Override public String header(final String name) { return null; }
+
+            @Override public Value input(final Function<InputStream, Value> body) { return object(); }
+
+        };
+    }
+
+    private static AgentResponse response() {
+        return new AgentResponse() {
+
+            @Override public void status(final int code) { }
+
+            @Override public void header(final String name, final String value) { }
+
+            @Override public void output(final Consumer<OutputStream> body) { }
+
+        };
+    }
+
+
+    //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    @Test void testRecordRequests() throws InterruptedException {
+
+        assertThat(record(1, () -> agent().process(request("get"), response())))
+                .singleElement()
+                .satisfies(event -> {
+                    assertThat(event.getString("method")).isEqualTo("GET");
+                    assertThat(event.getString("resource")).isEqualTo(RESOURCE.toString());
+                    assertThat(event.getInt("status")).isEqualTo(403);
+                });
+    }
+
+    @Test void testRecordDefaultStatusOfFailedRequests() throws InterruptedException {
+
+        final AgentRequest failing=new AgentRequest() {
+
+            @Override public String method() { return "GET"; }
+
+            @Override public URI resource() { return RESOURCE; }
+
+            @Override public String query() { throw new IllegalStateException("unreadable query"); }
+
+            @Override public String header(final String name) { return null; }
+
+            @Override public Value input(final Function<InputStream, Value> body) { return object(); }
+
+        };
+
+        final Agent agent=agent().retrieve(object());
+
+        assertThatThrownBy(() -> agent.process(failing, response())).isInstanceOf(IllegalStateException.class);
+
+        assertThat(record(1, () -> agent.process(failing, response())))
+                .singleElement()
+                .satisfies(event -> {
+                    assertThat(event.getString("method")).isEqualTo("GET");
+                    assertThat(event.getInt("status")).isEqualTo(500);
+                });
+    }
+
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright © 2022-2025 Metreeca srl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.metreeca.mesh.pipe;
+
+import com.metreeca.mesh.Value;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+
+import static com.metreeca.mesh.Value.*;
+import static com.metreeca.mesh.queries.Query.query;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+final class StoreCacheTest {
+
+    private static final Value x=resource("urn:x", "x");
+    private static final Value y=resource("urn:y", "y");
+
+
+    private static Value resource(final String id, final String label) {
+        return object(id(URI.create(id)), field("label", string(label)));
+    }
+
+    private static Value model(final Value resource) {
+        return object(id(resource.id().orElseThrow()), field("label", string("")));
+    }
+
+
+    private static void assertInvalidated(final BiFunction<Store, Value, Integer> write) {
+
+        final StoreMock store=new StoreMock(x, y);
+        final StoreCache cache=new StoreCache(store);
+
+        cache.retrieve(model(x));
+        cache.retrieve(model(y));
+
+        write.apply(cache, resource("urn:x", "x'"));
+
+        final int retrievals=store.retrievals();
+
+        cache.retrieve(model(x));
+
+        assertThat(store.retrievals()).as("written resource").isEqualTo(retrievals+1);
+
+        cache.retrieve(model(y));
+
+        assertThat(store.retrievals()).as("unrelated resource").isEqualTo(retrievals+1);
+    }
+
+
+    //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    @Test void testCacheRetrievedValues() {
+
+        final StoreMock store=new StoreMock(x, y);
+        final StoreCache cache=new StoreCache(store);
+
+        final Value first=cache.retrieve(model(x));
+
+        assertThat(cache.retrieve(model(x))).isEqualTo(first);
+        assertThat(store.retrievals()).isEqualTo(1);
+    }
+
+    @Test void testExpireStaleValues() throws InterruptedException {
+
+        final StoreMock store=new StoreMock(x, y);
+        final StoreCache cache=new StoreCache(store).ttl(Duration.ofMillis(50));
+
+        cache.retrieve(model(x));
+
+        Thread.sleep(100);
+
+        cache.retrieve(model(x));
+
+        assertThat(store.retrievals()).isEqualTo(2);
+    }
+
+    @Test void testEvictLeastRecentlyUsedValues() {
+
+        final Value z=resource("urn:z", "z");
+
+        final StoreMock store=new StoreMock(x, y, z);
+        final StoreCache cache=new StoreCache(store).size(2);
+
+        cache.retrieve(model(x));
+        cache.retrieve(model(y));
+        cache.retrieve(model(x)); // x is now more recently used than y
+        cache.retrieve(model(z)); // evicts y
+
+        assertThat(store.retrievals()).isEqualTo(3);
+
+        cache.retrieve(model(x));
+
+        assertThat(store.retrievals()).isEqualTo(3);
+
+        cache.retrieve(model(y));
+
+        assertThat(store.retrievals()).isEqualTo(4);
+    }
+
+
+    @Test void testInvalidateOnCreate() {
+        assertInvalidated(Store::create);
+    }
+
+    @Test void testInvalidateOnUpdate() {
+        assertInvalidated(Store::update);
+    }
+
+    @Test void testInvalidateOnMutate() {
+        assertInvalidated(Store::mutate);
+    }
+
+    @Test void testInvalidateOnDelete() {
+        assertInvalidated(Store::delete);
+    }
+
+    @Test void testInvalidateOnInsert() {
+        assertInvalidated(Store::insert);
+    }
+
+    @Test void testInvalidateOnRemove() {
+        assertInvalidated(Store::remove);
+    }
+
+    @Test void testInvalidateOnModify() {
+        assertInvalidated((store, value) -> store.modify(value, value));
+    }
+
+    @Test void testInvalidateMissingResourcesOnCreate() {
+
+        final StoreMock store=new StoreMock(y);
+        final StoreCache cache=new StoreCache(store);
+
+        assertThat(cache.retrieve(model(x))).isEqualTo(Nil());
+
+        cache.create(x);
+
+        assertThat(cache.retrieve(model(x))).isEqualTo(x);
+        assertThat(store.retrievals()).isEqualTo(2);
+    }
+
+    @Test void testInvalidateQueriesOnWrites() {
+
+        final StoreMock store=new StoreMock(x, y);
+        final StoreCache cache=new StoreCache(store);
+
+        final Value model=value(query().model(object(field("label", string("")))));
+
+        cache.retrieve(model);
+        cache.update(y);
+        cache.retrieve(model);
+
+        assertThat(store.retrievals()).isEqualTo(2);
+    }
+
+
+    @Test void testIgnoreRetrievalsRacingWrites() {
+
+        final StoreMock store=new StoreMock(x, y);
+        final StoreCache cache=new StoreCache(store);
+
+        final Value updated=resource("urn:x", "x'");
+        final AtomicBoolean raced=new AtomicBoolean();
+
+        store.hook(() -> { // write after the retrieval has read the stale value
+            if ( raced.compareAndSet(false, true) ) { cache.update(updated); }
+        });
+
+        assertThat(cache.retrieve(model(x))).isEqualTo(x);
+        assertThat(cache.retrieve(model(x))).isEqualTo(updated);
+        assertThat(store.retrievals()).isEqualTo(2);
+    }
+
+}
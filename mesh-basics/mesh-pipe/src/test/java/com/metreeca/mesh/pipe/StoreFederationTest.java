@@ -0,0 +1,204 @@
+/*
+ * Copyright © 2022-2025 Metreeca srl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.metreeca.mesh.pipe;
+
+import com.metreeca.mesh.Value;
+import com.metreeca.mesh.queries.Query;
+import com.metreeca.mesh.shapes.Shape;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+import static com.metreeca.mesh.Value.*;
+import static com.metreeca.mesh.queries.Criterion.criterion;
+import static com.metreeca.mesh.shapes.Property.property;
+import static com.metreeca.mesh.shapes.Shape.shape;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+final class StoreFederationTest {
+
+    private static final Shape Item=shape().id("id")
+            .property(property("label").forward(true).shape(shape().datatype(String())));
+
+
+    private static URI urn(final String label) {
+        return URI.create("urn:"+label);
+    }
+
+    private static Value item(final String label) {
+        return item(label, label);
+    }
+
+    private static Value item(final String id, final String label) {
+        return object(shape(Item), id(urn(id)), field("label", string(label)));
+    }
+
+
+    private static Query items() {
+        return Query.query().model(object(shape(Item), id(urn("")), field("label", string(""))));
+    }
+
+    /*
+     * Routes the resources identified by urn:b to the second partition and all other resources to the first one.
+     */
+    private static Function<Value, Store> router(final Store x, final Store y) {
+        return resource -> resource.id().filter(urn("b")::equals).isPresent() ? y : x;
+    }
+
+    private static List<String> labels(final Value items) {
+        return items.array().orElseThrow().stream()
+                .map(item -> item.get("label").string().orElseThrow())
+                .toList();
+    }
+
+
+    //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    @Test void testSortMergedItemsGlobally() {
+
+        final StoreFederation federation=new StoreFederation(
+                new StoreMock(item("a"), item("c"), item("e")),
+                new StoreMock(item("b"), item("d"), item("f"))
+        );
+
+        assertThat(labels(federation.retrieve(value(items()
+                .where("label", criterion().order(1))
+                .offset(1)
+                .limit(3)
+        )))).containsExactly("b", "c", "d");
+
+        assertThat(labels(federation.retrieve(value(items()
+                .where("label", criterion().order(-1))
+                .limit(2)
+        )))).containsExactly("f", "e");
+    }
+
+    @Test void testSortMergedItemsOnIdsByDefault() {
+
+        final StoreFederation federation=new StoreFederation(
+                new StoreMock(item("a"), item("c"), item("e")),
+                new StoreMock(item("b"), item("d"), item("f"))
+        );
+
+        assertThat(labels(federation.retrieve(value(items()
+                .offset(2)
+                .limit(2)
+        )))).containsExactly("c", "d");
+    }
+
+    @Test void testSortFocusedItemsFirst() {
+
+        final StoreFederation federation=new StoreFederation(
+                new StoreMock(item("a"), item("c"), item("e")),
+                new StoreMock(item("b"), item("d"), item("f"))
+        );
+
+        assertThat(labels(federation.retrieve(value(items()
+                .where("label", criterion().order(1).focus(string("d"), string("a")))
+                .limit(3)
+        )))).containsExactly("a", "d", "b");
+    }
+
+    @Test void testRejectUnprojectedSortKeys() {
+
+        final StoreFederation federation=new StoreFederation(
+                new StoreMock(item("a")),
+                new StoreMock(item("b"))
+        );
+
+        assertThatThrownBy(() -> federation.retrieve(value(Query.query()
+                .model(object(shape(Item), id(urn(""))))
+                .where("label", criterion().order(1))
+        ))).isInstanceOf(StoreException.class);
+    }
+
+
+    @Test void testRouteCreations() {
+
+        final StoreMock x=new StoreMock(item("a"));
+        final StoreMock y=new StoreMock(item("b"));
+
+        final StoreFederation federation=new StoreFederation(x, y).router(router(x, y));
+
+        assertThat(federation.create(array(item("b", "b'"), item("c")))).isEqualTo(1);
+
+        assertThat(x.ids()).isEqualTo(Set.of(urn("a"), urn("c")));
+        assertThat(y.ids()).isEqualTo(Set.of(urn("b")));
+
+        assertThat(y.retrieve(object(id(urn("b")))).get("label")).isEqualTo(string("b"));
+    }
+
+    @Test void testRouteInsertions() {
+
+        final StoreMock x=new StoreMock(item("a"));
+        final StoreMock y=new StoreMock(item("b"));
+
+        final StoreFederation federation=new StoreFederation(x, y).router(router(x, y));
+
+        assertThat(federation.insert(array(item("b", "b'"), item("c")))).isEqualTo(2);
+
+        assertThat(x.ids()).isEqualTo(Set.of(urn("a"), urn("c")));
+        assertThat(y.ids()).isEqualTo(Set.of(urn("b")));
+
+        assertThat(y.retrieve(object(id(urn("b")))).get("label")).isEqualTo(string("b'"));
+    }
+
+    @Test void testRouteModifications() {
+
+        final StoreMock x=new StoreMock(item("a"));
+        final StoreMock y=new StoreMock(item("b"));
+
+        final StoreFederation federation=new StoreFederation(x, y).router(router(x, y));
+
+        federation.modify(array(item("b", "b'"), item("c")), array(item("a")));
+
+        assertThat(x.ids()).isEqualTo(Set.of(urn("c")));
+        assertThat(y.ids()).isEqualTo(Set.of(urn("b")));
+
+        assertThat(y.retrieve(object(id(urn("b")))).get("label")).isEqualTo(string("b'"));
+    }
+
+    @Test void testRejectUnroutedWrites() {
+
+        final StoreMock x=new StoreMock(item("a"));
+        final StoreMock y=new StoreMock(item("b"));
+
+        final StoreFederation federation=new StoreFederation(x, y);
+
+        assertThatThrownBy(() -> federation.create(item("c"))).isInstanceOf(StoreException.class);
+        assertThatThrownBy(() -> federation.insert(item("c"))).isInstanceOf(StoreException.class);
+        assertThatThrownBy(() -> federation.modify(item("c"), item("a"))).isInstanceOf(StoreException.class);
+
+        assertThat(x.ids()).isEqualTo(Set.of(urn("a")));
+        assertThat(y.ids()).isEqualTo(Set.of(urn("b")));
+    }
+
+    @Test void testRejectUnknownPartitions() {
+
+        final StoreFederation federation=new StoreFederation(new StoreMock(), new StoreMock())
+                .router(resource -> new StoreMock());
+
+        assertThatThrownBy(() -> federation.insert(item("c"))).isInstanceOf(StoreException.class);
+    }
+
+}
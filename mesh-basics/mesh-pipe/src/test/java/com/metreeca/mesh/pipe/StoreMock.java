@@ -0,0 +1,220 @@
+/*
+ * Copyright © 2022-2025 Metreeca srl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.metreeca.mesh.pipe;
+
+import com.metreeca.mesh.Valuable;
+import com.metreeca.mesh.Value;
+import com.metreeca.mesh.queries.Criterion;
+import com.metreeca.mesh.queries.Expression;
+import com.metreeca.mesh.queries.Query;
+
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static com.metreeca.mesh.Value.*;
+import static com.metreeca.shim.Collections.list;
+
+/**
+ * In-memory store mock.
+ *
+ * <p>Stores whole resources by id and counts retrievals. Resource models retrieve the stored resource, ignoring
+ * model fields; query models retrieve all stored resources, sorted on focus values and sort keys and windowed
+ * according to offset and limit, ignoring filters and the query model.</p>
+ */
+final class StoreMock implements Store {
+
+    private final Map<URI, Value> resources=new ConcurrentHashMap<>();
+    private final AtomicInteger retrievals=new AtomicInteger();
+
+    private volatile Runnable hook=() -> { };
+
+
+    StoreMock(final Value... resources) {
+        for (final Value resource : resources) {
+            this.resources.put(resource.id().orElseThrow(), resource);
+        }
+    }
+
+
+    /*
+     * Retrieves the number of executed retrievals.
+     */
+    int retrievals() {
+        return retrievals.get();
+    }
+
+    /*
+     * Retrieves the ids of the stored resources.
+     */
+    Set<URI> ids() {
+        return Set.copyOf(resources.keySet());
+    }
+
+    /*
+     * Configures a task executed by each retrieval after resolving the model and before returning.
+     */
+    StoreMock hook(final Runnable hook) {
+
+        this.hook=hook;
+
+        return this;
+    }
+
+
+    //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public Value retrieve(final Valuable model, final List<Locale> locales) {
+
+        retrievals.incrementAndGet();
+
+        final Value value=resolve(model.toValue());
+
+        hook.run();
+
+        return value;
+    }
+
+
+    @Override
+    public int create(final Valuable value) {
+        return count(value, resource -> resources.putIfAbsent(id(resource), resource) == null);
+    }
+
+    @Override
+    public int update(final Valuable value) {
+        return count(value, resource -> resources.replace(id(resource), resource) != null);
+    }
+
+    @Override
+    public int mutate(final Valuable value) {
+        return update(value);
+    }
+
+    @Override
+    public int delete(final Valuable value) {
+        return count(value, resource -> resources.remove(id(resource)) != null);
+    }
+
+
+    @Override
+    public int insert(final Valuable value) {
+        return count(value, resource -> {
+
+            resources.put(id(resource), resource);
+
+            return true;
+
+        });
+    }
+
+    @Override
+    public int remove(final Valuable value) {
+        return count(value, resource -> resources.remove(id(resource)) != null);
+    }
+
+    @Override
+    public int modify(final Valuable insert, final Valuable remove) {
+
+        remove(remove);
+
+        return insert(insert);
+    }
+
+
+    @Override
+    public <V> V execute(final Function<Store, V> task) {
+        return task.apply(this);
+    }
+
+
+    //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private Value resolve(final Value model) {
+        return model.value(Query.class).map(this::query)
+                .or(() -> model.array().map(values -> array(values.stream().map(this::resolve))))
+                .or(() -> model.id().map(id -> resources.getOrDefault(id, Nil())))
+                .orElse(model);
+    }
+
+    private Value query(final Query query) {
+
+        final Stream<Value> items=resources.values().stream()
+                .sorted(comparator(query))
+                .skip(query.offset());
+
+        return array(query.limit() > 0 ? items.limit(query.limit()) : items);
+    }
+
+
+    private int count(final Valuable value, final Function<Value, Boolean> action) {
+
+        final Value resources=value.toValue();
+
+        return (int)resources.array().orElseGet(() -> list(resources)).stream()
+                .filter(action::apply)
+                .count();
+    }
+
+    private static URI id(final Value resource) {
+        return resource.id().orElseThrow();
+    }
+
+
+    private static Comparator<Value> comparator(final Query query) {
+
+        final Map<Expression, Criterion> criteria=query.criteria();
+
+        Comparator<Value> comparator=(x, y) -> 0;
+
+        for (final Map.Entry<Expression, Criterion> entry : criteria.entrySet()) { // focus values first
+
+            final Expression key=entry.getKey();
+            final Optional<Set<Value>> focus=entry.getValue().focus();
+
+            if ( focus.isPresent() ) {
+                comparator=comparator.thenComparing(item -> !focus.get().contains(key(item, key)));
+            }
+
+        }
+
+        for (final Expression key : query.keys()) {
+
+            final int order=Optional.ofNullable(criteria.get(key)).flatMap(Criterion::order).orElse(0);
+            final Comparator<Value> ascending=Comparator.comparing(item -> key(item, key), Value::compare);
+
+            comparator=comparator.thenComparing(order < 0 ? ascending.reversed() : ascending);
+
+        }
+
+        return comparator;
+    }
+
+    private static Value key(final Value item, final Expression key) {
+
+        Value target=item;
+
+        for (final String step : key.path()) { target=target.get(step); }
+
+        return target.object().isPresent() ? target.id().map(Value::uri).orElseGet(Value::Nil) : target;
+    }
+
+}
@@ -25,6 +25,8 @@ import com.metreeca.mesh.queries.Tuple;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.Locale;
+
 import static com.metreeca.mesh.Value.*;
 import static com.metreeca.mesh.queries.Criterion.criterion;
 import static com.metreeca.mesh.queries.Expression.expression;
@@ -122,6 +124,23 @@ abstract class StoreTestRetrieve {
     }
 
 
+    @Test void testRetrieveLocalizedValues() {
+        assertThat(populate(store()).retrieve(object(
+
+                id(item("/offices/1")),
+                shape(Office),
+
+                field(country, Text())
+
+        ), Locale.GERMAN, Locale.FRENCH)).satisfies(office -> assertThat(office.get(country).texts())
+                .containsExactlyElementsOf(Office(item("/offices/1")).orElseThrow().get(country).texts()
+                        .filter(text -> text.getKey().equals(Locale.GERMAN))
+                        .toList()
+                )
+        );
+    }
+
+
     @Test void testHandleNakedValuesQueries() {
         assertThat(populate(store()).retrieve(value(query()
 
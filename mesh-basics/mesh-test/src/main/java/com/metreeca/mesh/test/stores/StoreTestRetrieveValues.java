@@ -19,13 +19,16 @@ package com.metreeca.mesh.test.stores;
 
 import com.metreeca.mesh.Value;
 import com.metreeca.mesh.pipe.Store;
+import com.metreeca.mesh.queries.Query;
 
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
 import java.net.URI;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Optional;
 
 import static com.metreeca.mesh.Value.*;
@@ -783,6 +786,49 @@ public abstract class StoreTestRetrieveValues {
             );
         }
 
+        @Test void testHandleCursor() {
+
+            final Store store=populate(store());
+
+            final List<Value> retrieved=new ArrayList<>();
+
+            for (
+
+                    Query page=query(object(shape(Employee), id(base()), field(seniority, integer(0))))
+                            .where(seniority, criterion().order(-1))
+                            .limit(5);
+
+                    page != null;
+
+            ) {
+
+                final List<Value> items=members(store.retrieve(object(
+                        id(item("/employees/")),
+                        shape(Catalog(Employee)),
+                        field(members, value(page))
+                )));
+
+                retrieved.addAll(items);
+
+                page=items.size() < 5 ? null : page.next(items.getLast());
+
+            }
+
+            assertThat(retrieved)
+                    .map(Value::id)
+                    .containsExactlyElementsOf(Employees.stream()
+                            .sorted(Comparator.<Value, Long>comparing(employee -> employee
+                                            .get(seniority).integral()
+                                            .orElseThrow()
+                                    )
+                                    .reversed()
+                                    .thenComparing(employee -> employee.id().orElseThrow().toString())
+                            )
+                            .map(Value::id)
+                            .toList()
+                    );
+        }
+
     }
 
     @Nested
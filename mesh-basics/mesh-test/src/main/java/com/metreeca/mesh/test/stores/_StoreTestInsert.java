@@ -26,6 +26,9 @@ import org.junit.jupiter.api.Test;
 
 import java.net.URI;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
 
 import static com.metreeca.mesh.Value.*;
 import static com.metreeca.mesh.queries.Query.query;
@@ -80,6 +83,28 @@ abstract class _StoreTestInsert {
     }
 
 
+    @Test void testInsertStreams() {
+
+        final Store store=store();
+        final List<Integer> progress=new ArrayList<>();
+
+        assertThat(store.insert(Stream.of(
+                employee(item("/employees/1")),
+                array(employee(item("/employees/2")), employee(item("/employees/3")))
+        ), progress::add)).isEqualTo(3);
+
+        assertThat(progress).endsWith(3);
+
+        assertThat(store.retrieve(new EmployeeFrame()
+                .id(item("/employees/3"))
+                .seniority(0)
+        )).extracting(EmployeeFrame::new).satisfies(inserted -> {
+            assertThat(inserted.seniority()).isEqualTo(1);
+        });
+
+    }
+
+
     @Test void testCreateUnknownResources() {
 
         final Store store=populate(store());
@@ -25,6 +25,8 @@ import com.metreeca.shim.URIs;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
@@ -202,7 +204,52 @@ public final class JSONCodec implements Codec {
             throw new NullPointerException("null target");
         }
 
-        new JSONEncoder(this, target).encode(requireNonNull(value.toValue(), "null supplied value"));
+        final Value encoded=requireNonNull(value.toValue(), "null supplied value");
+        final JSONCodecEvent event=new JSONCodecEvent();
+
+        event.begin();
+
+        try {
+
+            new JSONEncoder(this, target).encode(encoded);
+
+        } finally {
+
+            event.commit("encode", encoded.shape());
+
+        }
+
+        return target;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Values are written to {@code target} as they are produced by the stream.</p>
+     */
+    @Override public <A extends Appendable> A encode(final A target, final Stream<? extends Valuable> values) throws CodecException, IOException {
+
+        if ( target == null ) {
+            throw new NullPointerException("null target");
+        }
+
+        if ( values == null ) {
+            throw new NullPointerException("null values");
+        }
+
+        final JSONCodecEvent event=new JSONCodecEvent();
+
+        event.begin();
+
+        try {
+
+            new JSONEncoder(this, target).encode(values.map(value -> requireNonNull(value.toValue(), "null supplied value")));
+
+        } finally {
+
+            event.commit("encode", Optional.empty());
+
+        }
 
         return target;
     }
@@ -217,7 +264,19 @@ public final class JSONCodec implements Codec {
             throw new NullPointerException("null shape");
         }
 
-        return new JSONDecoder(this, source).decode(shape);
+        final JSONCodecEvent event=new JSONCodecEvent();
+
+        event.begin();
+
+        try {
+
+            return new JSONDecoder(this, source).decode(shape);
+
+        } finally {
+
+            event.commit("decode", Optional.of(shape));
+
+        }
     }
 
     @Override public <R extends Readable> Value decode(final R source) throws CodecException, IOException {
@@ -226,7 +285,19 @@ public final class JSONCodec implements Codec {
             throw new NullPointerException("null source");
         }
 
-        return new JSONDecoder(this, source).decode(null);
+        final JSONCodecEvent event=new JSONCodecEvent();
+
+        event.begin();
+
+        try {
+
+            return new JSONDecoder(this, source).decode(null);
+
+        } finally {
+
+            event.commit("decode", Optional.empty());
+
+        }
     }
 
 }
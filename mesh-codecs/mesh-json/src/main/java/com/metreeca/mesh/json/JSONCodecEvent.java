@@ -0,0 +1,58 @@
+/*
+ * Copyright © 2022-2025 Metreeca srl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.metreeca.mesh.json;
+
+import com.metreeca.mesh.shapes.Shape;
+import com.metreeca.mesh.shapes.Type;
+
+import jdk.jfr.*;
+
+import java.util.Optional;
+
+/**
+ * JSON codec flight recorder event.
+ *
+ * <p>Records the encoding or decoding of a value by a {@linkplain JSONCodec JSON codec}; details are collected only
+ * if the event is enabled in the active recording.</p>
+ */
+@Name("com.metreeca.mesh.json.Codec")
+@Label("JSON Codec")
+@Description("Value encoded or decoded by a JSON codec")
+@Category({ "Metreeca Mesh", "Codec" })
+@StackTrace(false)
+final class JSONCodecEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Shape")
+    @Description("The name of the class of the shape of the processed value, if any")
+    String shape;
+
+
+    void commit(final String operation, final Optional<Shape> shape) {
+        if ( shouldCommit() ) {
+
+            this.operation=operation;
+            this.shape=shape.flatMap(Shape::clazz).map(Type::name).orElse(null);
+
+            commit();
+
+        }
+    }
+
+}
@@ -214,6 +214,8 @@ final class JSONDecoder {
             int offset=-1;
             int limit=-1;
 
+            String token=null;
+
             final Map<String, String> keywords=new LinkedHashMap<>();
             final Map<Expression, Criterion> criteria=new LinkedHashMap<>(); // preserve ordering priorities
 
@@ -338,11 +340,13 @@ final class JSONDecoder {
 
                     } else if ( label.equals("@") ) {
 
-                        if ( offset >= 0 ) {
+                        if ( offset >= 0 || token != null ) {
                             reader.semantics("multiple <offset> (@) values");
                         }
 
-                        offset=offset(reader.token(NUMBER));
+                        if ( reader.event() == STRING ) { token=reader.token(); } else {
+                            offset=offset(reader.token(NUMBER));
+                        }
 
                     } else if ( label.equals("#") ) {
 
@@ -477,7 +481,7 @@ final class JSONDecoder {
 
             reader.token(RBRACE);
 
-            final boolean query=!criteria.isEmpty() || offset >= 0 || limit >= 0;
+            final boolean query=!criteria.isEmpty() || offset >= 0 || limit >= 0 || token != null;
             final boolean specs=!probes.isEmpty();
 
             if ( query && !array ) {
@@ -503,9 +507,9 @@ final class JSONDecoder {
 
                     );
 
-                    return query
-                            ? Value.value(new Query(model, criteria, max(offset, 0), min(max(limit, 0), MAX_LIMIT)))
-                            : model;
+                    return query ? Value.value(new Query(model, criteria, max(offset, 0), min(max(limit, 0), MAX_LIMIT))
+                            .token(token != null ? token : "")
+                    ) : model;
 
                 } catch ( final IllegalArgumentException e ) {
 
@@ -30,6 +30,7 @@ import java.io.UncheckedIOException;
 import java.net.URI;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.stream.Stream;
 
 import static com.metreeca.mesh.Value.Text;
 import static com.metreeca.shim.Locales.ANY;
@@ -83,6 +84,17 @@ final class JSONEncoder {
     }
 
 
+    void encode(final Stream<Value> values) throws IOException {
+        try {
+
+            array(values::iterator);
+
+        } catch ( final UncheckedIOException e ) {
+            throw e.getCause();
+        }
+    }
+
+
     //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
     private void value(final Value value) {
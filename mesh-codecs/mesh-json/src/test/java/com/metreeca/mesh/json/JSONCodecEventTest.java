@@ -0,0 +1,94 @@
+/*
+ * Copyright © 2022-2025 Metreeca srl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.metreeca.mesh.json;
+
+import com.metreeca.mesh.shapes.Shape;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static com.metreeca.mesh.Value.String;
+import static com.metreeca.mesh.Value.field;
+import static com.metreeca.mesh.Value.object;
+import static com.metreeca.mesh.Value.shape;
+import static com.metreeca.mesh.Value.string;
+import static com.metreeca.mesh.json.JSONCodec.json;
+import static com.metreeca.mesh.shapes.Property.property;
+import static com.metreeca.mesh.shapes.Shape.shape;
+import static com.metreeca.mesh.shapes.Type.type;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+final class JSONCodecEventTest {
+
+    private static final String CODEC="com.metreeca.mesh.json.Codec";
+
+    private static final Shape Item=shape().clazz(type("Item"))
+            .property(property("label").forward(true).shape(shape().datatype(String())));
+
+
+    private static List<RecordedEvent> record(final int count, final Runnable task) throws InterruptedException {
+        try ( final RecordingStream stream=new RecordingStream() ) {
+
+            final BlockingQueue<RecordedEvent> events=new LinkedBlockingQueue<>();
+
+            stream.enable(CODEC).withoutThreshold();
+            stream.onEvent(CODEC, events::add);
+            stream.startAsync();
+
+            task.run();
+
+            final List<RecordedEvent> recorded=new ArrayList<>();
+
+            for (RecordedEvent event; recorded.size() < count && (event=events.poll(10, TimeUnit.SECONDS)) != null; ) {
+                recorded.add(event);
+            }
+
+            return recorded;
+
+        }
+    }
+
+
+    @Test void testRecordEncodings() throws InterruptedException {
+
+        assertThat(record(1, () -> json().encode(object(shape(Item), field("label", string("x"))))))
+                .singleElement()
+                .satisfies(event -> {
+                    assertThat(event.getString("operation")).isEqualTo("encode");
+                    assertThat(event.getString("shape")).isEqualTo("Item");
+                });
+    }
+
+    @Test void testRecordDecodings() throws InterruptedException {
+
+        assertThat(record(1, () -> json().decode("{\"label\":\"x\"}", Item)))
+                .singleElement()
+                .satisfies(event -> {
+                    assertThat(event.getString("operation")).isEqualTo("decode");
+                    assertThat(event.getString("shape")).isEqualTo("Item");
+                });
+    }
+
+}
@@ -691,6 +691,20 @@ final class JSONDecoderTest {
             );
         }
 
+        @Test void testDecodeContinuationToken() {
+
+            final Query query=Query.query().cursor(list(Value.uri(uri("https://example.net/item"))));
+
+            assertThat(query("[{ '@': '%s' }]".formatted(query.token())).cursor())
+                    .isEqualTo(query.cursor());
+        }
+
+        @Test void testReportMalformedContinuationToken() {
+            assertThatExceptionOfType(CodecException.class).isThrownBy(() ->
+                    query("[{ '@': '~x.y'  }]")
+            );
+        }
+
 
         @Test void testDecodeLimit() {
             assertThat(query("[{ '#': 100  }]").limit())
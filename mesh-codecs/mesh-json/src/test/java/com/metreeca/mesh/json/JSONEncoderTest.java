@@ -30,6 +30,7 @@ import java.io.StringWriter;
 import java.io.UncheckedIOException;
 import java.net.URI;
 import java.util.Locale;
+import java.util.stream.Stream;
 
 import static com.metreeca.mesh.Value.Array;
 import static com.metreeca.mesh.Value.Bit;
@@ -267,6 +268,24 @@ final class JSONEncoderTest {
             ));
         }
 
+        @Test void testHandleStreamedValues() {
+            try ( final StringWriter writer=new StringWriter() ) {
+
+                new JSONEncoder(JSONCodec.json(), writer).encode(Stream.of(integral(1), string("x"), Array()));
+
+                assertThat(writer.toString()).isEqualTo(json(
+
+                        "[1,'x',[]]"
+
+                ));
+
+            } catch ( final IOException e ) {
+
+                throw new UncheckedIOException(e);
+
+            }
+        }
+
     }
 
     @Nested
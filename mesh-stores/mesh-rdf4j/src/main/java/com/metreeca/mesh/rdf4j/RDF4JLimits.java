@@ -0,0 +1,186 @@
+/*
+ * Copyright © 2022-2025 Metreeca srl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.metreeca.mesh.rdf4j;
+
+import java.time.Duration;
+
+import static java.lang.String.format;
+
+/**
+ * RDF4J query limits configuration.
+ *
+ * <p>Defines the safety rails applied to the SPARQL queries generated by the read operations of an
+ * {@linkplain RDF4JStore RDF4J store}, protecting the store from runaway requests on large collections.</p>
+ *
+ * <p>Page sizes apply to all collection queries, including nested property values, which are retrieved in batches
+ * for multiple resources only if no page size is configured, as a single slice limit can't be distributed among the
+ * resources of a batch; if a page size is configured, the values of each resource are retrieved with their own
+ * paged query.</p>
+ *
+ * <p>Limits instances are immutable and support fluent configuration through functional setters.</p>
+ *
+ * @param page    the default page size applied to collection queries without an explicit limit; {@code 0} for no
+ *                default page size
+ * @param max     the maximum page size, clamping explicit query limits; {@code 0} for no maximum page size
+ * @param timeout the maximum execution time of each generated query; {@linkplain Duration#ZERO zero} for no timeout
+ * @param rows    the maximum number of result rows processed by a single read operation; {@code 0} for no row budget
+ */
+public final record RDF4JLimits(
+
+        int page,
+        int max,
+
+        Duration timeout,
+
+        long rows
+
+) {
+
+    private static final RDF4JLimits DEFAULT=new RDF4JLimits(
+
+            0,
+            0,
+
+            Duration.ZERO,
+
+            0
+
+    );
+
+
+    /**
+     * Creates a default limits configuration.
+     *
+     * @return a limits configuration with no default or maximum page size, no query timeout and no row budget
+     */
+    public static RDF4JLimits limits() {
+        return DEFAULT;
+    }
+
+
+    //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    public RDF4JLimits(
+
+            final int page,
+            final int max,
+
+            final Duration timeout,
+
+            final long rows
+
+    ) {
+
+        if ( page < 0 ) {
+            throw new IllegalArgumentException(format("negative page size <%d>", page));
+        }
+
+        if ( max < 0 ) {
+            throw new IllegalArgumentException(format("negative max page size <%d>", max));
+        }
+
+        if ( max > 0 && page > max ) {
+            throw new IllegalArgumentException(format("page size <%d> greater than max page size <%d>", page, max));
+        }
+
+        if ( timeout == null ) {
+            throw new NullPointerException("null query timeout");
+        }
+
+        if ( timeout.isNegative() ) {
+            throw new IllegalArgumentException(format("negative query timeout <%s>", timeout));
+        }
+
+        if ( rows < 0 ) {
+            throw new IllegalArgumentException(format("negative row budget <%d>", rows));
+        }
+
+        this.page=page;
+        this.max=max;
+
+        this.timeout=timeout;
+
+        this.rows=rows;
+    }
+
+
+    /**
+     * Configures the default page size.
+     *
+     * @param page the default page size applied to collection queries without an explicit limit; {@code 0} for no
+     *             default page size
+     *
+     * @return a new limits configuration with the specified default page size
+     *
+     * @throws IllegalArgumentException if {@code page} is negative or greater than the maximum page size
+     */
+    public RDF4JLimits page(final int page) {
+        return new RDF4JLimits(page, max, timeout, rows);
+    }
+
+    /**
+     * Configures the maximum page size.
+     *
+     * @param max the maximum page size, clamping explicit query limits; {@code 0} for no maximum page size
+     *
+     * @return a new limits configuration with the specified maximum page size
+     *
+     * @throws IllegalArgumentException if {@code max} is negative or less than the default page size
+     */
+    public RDF4JLimits max(final int max) {
+        return new RDF4JLimits(page, max, timeout, rows);
+    }
+
+
+    /**
+     * Configures the query timeout.
+     *
+     * <p>Timeouts are enforced by the repository with a granularity of one second and rounded up accordingly; queries
+     * exceeding the timeout abort the enclosing operation with a
+     * {@link com.metreeca.mesh.pipe.StoreException}.</p>
+     *
+     * @param timeout the maximum execution time of each generated query; {@linkplain Duration#ZERO zero} for no
+     *                timeout
+     *
+     * @return a new limits configuration with the specified query timeout
+     *
+     * @throws NullPointerException     if {@code timeout} is {@code null}
+     * @throws IllegalArgumentException if {@code timeout} is negative
+     */
+    public RDF4JLimits timeout(final Duration timeout) {
+        return new RDF4JLimits(page, max, timeout, rows);
+    }
+
+
+    /**
+     * Configures the row budget.
+     *
+     * <p>Read operations processing more than the specified number of result rows across all the queries they
+     * generate are aborted with a {@link com.metreeca.mesh.pipe.StoreException} as soon as the budget is
+     * exceeded.</p>
+     *
+     * @param rows the maximum number of result rows processed by a single read operation; {@code 0} for no row budget
+     *
+     * @return a new limits configuration with the specified row budget
+     *
+     * @throws IllegalArgumentException if {@code rows} is negative
+     */
+    public RDF4JLimits rows(final long rows) {
+        return new RDF4JLimits(page, max, timeout, rows);
+    }
+
+}
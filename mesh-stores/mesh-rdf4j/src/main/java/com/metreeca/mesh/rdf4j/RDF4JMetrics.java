@@ -0,0 +1,132 @@
+/*
+ * Copyright © 2022-2025 Metreeca srl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.metreeca.mesh.rdf4j;
+
+import java.time.Duration;
+
+/**
+ * RDF4J store metrics listener.
+ *
+ * <p>Receives measurements about the execution pipeline of the operations of an {@linkplain RDF4JStore RDF4J
+ * store}, to be bridged to external monitoring systems. Each store operation is executed in consecutive rounds,
+ * each including a reading phase, where pending queries are evaluated, and a writing phase, where pending updates
+ * are applied; rounds are repeated until no further work is triggered by the results of previous ones.</p>
+ *
+ * <p>All notification methods are no-ops by default, so that listeners may override only the ones they are
+ * interested in; methods are invoked synchronously on the threads executing store operations and must be
+ * thread-safe and fast. Exceptions thrown by listeners are logged and otherwise ignored.</p>
+ */
+public interface RDF4JMetrics {
+
+    /**
+     * Creates a default metrics listener.
+     *
+     * @return a metrics listener ignoring all measurements
+     */
+    static RDF4JMetrics metrics() {
+        return _StoreMeter.NONE;
+    }
+
+
+    /**
+     * Notifies the evaluation of a SPARQL query.
+     *
+     * @param worker  the pipeline worker issuing the query
+     * @param bytes   the size of the generated SPARQL query text in UTF-8 bytes
+     * @param rows    the number of result rows fetched
+     * @param elapsed the time spent evaluating the query and consuming its results
+     */
+    default void query(final Worker worker, final int bytes, final long rows, final Duration elapsed) { }
+
+    /**
+     * Notifies the application of a batch of pending updates.
+     *
+     * @param statements the number of statements added or removed
+     * @param elapsed    the time spent applying the updates
+     */
+    default void update(final long statements, final Duration elapsed) { }
+
+    /**
+     * Notifies the completion of an execution round.
+     *
+     * @param round   the zero-based index of the round within the enclosing operation
+     * @param reading the duration of the reading phase of the round
+     * @param writing the duration of the writing phase of the round
+     */
+    default void round(final int round, final Duration reading, final Duration writing) { }
+
+    /**
+     * Notifies the completion of a store operation, either successful or failed.
+     *
+     * @param stats the measurements accumulated over the whole operation
+     */
+    default void operation(final Stats stats) { }
+
+
+    //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Query-issuing pipeline workers.
+     */
+    enum Worker {
+
+        /**
+         * Collection and tuple query worker.
+         */
+        SELECTOR,
+
+        /**
+         * Resource property value worker.
+         */
+        FETCHER
+
+    }
+
+
+    /**
+     * Store operation measurements.
+     *
+     * @param rounds     the number of execution rounds
+     * @param selections the number of queries issued by the {@linkplain Worker#SELECTOR selector}
+     * @param fetches    the number of queries issued by the {@linkplain Worker#FETCHER fetcher}
+     * @param updates    the number of update batches applied
+     * @param rows       the total number of result rows fetched
+     * @param statements the total number of statements added or removed
+     * @param bytes      the total size of generated SPARQL query text in UTF-8 bytes
+     * @param reading    the total duration of reading phases
+     * @param writing    the total duration of writing phases
+     * @param elapsed    the overall duration of the operation
+     */
+    record Stats(
+
+            int rounds,
+
+            long selections,
+            long fetches,
+            long updates,
+
+            long rows,
+            long statements,
+            long bytes,
+
+            Duration reading,
+            Duration writing,
+            Duration elapsed
+
+    ) { }
+
+}
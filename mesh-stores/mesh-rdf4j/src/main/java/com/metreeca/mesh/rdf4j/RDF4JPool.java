@@ -0,0 +1,215 @@
+/*
+ * Copyright © 2022-2025 Metreeca srl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.metreeca.mesh.rdf4j;
+
+import java.time.Duration;
+
+import static java.lang.String.format;
+
+/**
+ * RDF4J connection pool configuration.
+ *
+ * <p>Defines the bounds and the eviction/validation policies of the pool of
+ * {@linkplain org.eclipse.rdf4j.repository.RepositoryConnection repository connections} shared by the top-level
+ * operations of an {@linkplain RDF4JStore RDF4J store}.</p>
+ *
+ * <p>Pool instances are immutable and support fluent configuration through functional setters.</p>
+ *
+ * @param min      the minimum number of idle connections retained by the pool regardless of their idle time
+ * @param max      the maximum number of connections concurrently borrowed from the pool, including spare connections
+ *                 leased by {@linkplain RDF4JStore#parallel(boolean) parallel reads}
+ * @param idle     the idle time after which surplus idle connections are closed
+ * @param timeout  the maximum time waited for a connection to become available
+ * @param validate if {@code true}, idle connections are probed with a trivial query before being handed out
+ */
+public final record RDF4JPool(
+
+        int min,
+        int max,
+
+        Duration idle,
+        Duration timeout,
+
+        boolean validate
+
+) {
+
+    private static final RDF4JPool DEFAULT=new RDF4JPool(
+
+            0,
+            2*Runtime.getRuntime().availableProcessors(),
+
+            Duration.ofMinutes(1),
+            Duration.ofSeconds(30),
+
+            false
+
+    );
+
+
+    /**
+     * Creates a default pool configuration.
+     *
+     * @return a pool configuration with no retained idle connections, a maximum of twice the available processors
+     *         borrowed connections, a 1 minute idle timeout, a 30 seconds wait timeout and no validation
+     */
+    public static RDF4JPool pool() {
+        return DEFAULT;
+    }
+
+
+    //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    public RDF4JPool(
+
+            final int min,
+            final int max,
+
+            final Duration idle,
+            final Duration timeout,
+
+            final boolean validate
+
+    ) {
+
+        if ( min < 0 ) {
+            throw new IllegalArgumentException(format("negative min size <%d>", min));
+        }
+
+        if ( max < 1 ) {
+            throw new IllegalArgumentException(format("non-positive max size <%d>", max));
+        }
+
+        if ( min > max ) {
+            throw new IllegalArgumentException(format("min size <%d> greater than max size <%d>", min, max));
+        }
+
+        if ( idle == null ) {
+            throw new NullPointerException("null idle timeout");
+        }
+
+        if ( idle.isNegative() ) {
+            throw new IllegalArgumentException(format("negative idle timeout <%s>", idle));
+        }
+
+        if ( timeout == null ) {
+            throw new NullPointerException("null wait timeout");
+        }
+
+        if ( timeout.isNegative() ) {
+            throw new IllegalArgumentException(format("negative wait timeout <%s>", timeout));
+        }
+
+        this.min=min;
+        this.max=max;
+
+        this.idle=idle;
+        this.timeout=timeout;
+
+        this.validate=validate;
+    }
+
+
+    /**
+     * Configures the minimum pool size.
+     *
+     * @param min the minimum number of idle connections retained by the pool regardless of their idle time
+     *
+     * @return a new pool configuration with the specified minimum size
+     *
+     * @throws IllegalArgumentException if {@code min} is negative or greater than the maximum pool size
+     */
+    public RDF4JPool min(final int min) {
+        return new RDF4JPool(min, max, idle, timeout, validate);
+    }
+
+    /**
+     * Configures the maximum pool size.
+     *
+     * @param max the maximum number of connections concurrently borrowed from the pool
+     *
+     * @return a new pool configuration with the specified maximum size
+     *
+     * @throws IllegalArgumentException if {@code max} is not positive or less than the minimum pool size
+     */
+    public RDF4JPool max(final int max) {
+        return new RDF4JPool(min, max, idle, timeout, validate);
+    }
+
+
+    /**
+     * Configures the idle timeout.
+     *
+     * @param idle the idle time after which surplus idle connections are closed
+     *
+     * @return a new pool configuration with the specified idle timeout
+     *
+     * @throws NullPointerException     if {@code idle} is {@code null}
+     * @throws IllegalArgumentException if {@code idle} is negative
+     */
+    public RDF4JPool idle(final Duration idle) {
+        return new RDF4JPool(min, max, idle, timeout, validate);
+    }
+
+    /**
+     * Configures the wait timeout.
+     *
+     * @param timeout the maximum time waited for a connection to become available
+     *
+     * @return a new pool configuration with the specified wait timeout
+     *
+     * @throws NullPointerException     if {@code timeout} is {@code null}
+     * @throws IllegalArgumentException if {@code timeout} is negative
+     */
+    public RDF4JPool timeout(final Duration timeout) {
+        return new RDF4JPool(min, max, idle, timeout, validate);
+    }
+
+
+    /**
+     * Configures connection validation on borrow.
+     *
+     * @param validate if {@code true}, idle connections are probed with a trivial query before being handed out
+     *
+     * @return a new pool configuration with the specified validation policy
+     */
+    public RDF4JPool validate(final boolean validate) {
+        return new RDF4JPool(min, max, idle, timeout, validate);
+    }
+
+
+    //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Connection pool usage statistics.
+     *
+     * @param borrowed the number of connections currently borrowed from the pool
+     * @param idle     the number of idle connections currently retained by the pool
+     * @param borrows  the total number of connections borrowed from the pool
+     * @param waiting  the total time spent waiting for connections to become available
+     */
+    public static record Stats(
+
+            int borrowed,
+            int idle,
+
+            long borrows,
+            Duration waiting
+
+    ) { }
+
+}
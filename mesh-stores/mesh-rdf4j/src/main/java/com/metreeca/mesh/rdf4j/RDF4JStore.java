@@ -20,22 +20,40 @@ package com.metreeca.mesh.rdf4j;
 import com.metreeca.mesh.Valuable;
 import com.metreeca.mesh.Value;
 import com.metreeca.mesh.pipe.Store;
+import com.metreeca.mesh.queries.Query;
+import com.metreeca.mesh.queries.Specs;
 
 import org.eclipse.rdf4j.common.exception.ValidationException;
+import org.eclipse.rdf4j.common.transaction.IsolationLevel;
+import org.eclipse.rdf4j.common.transaction.IsolationLevels;
 import org.eclipse.rdf4j.repository.Repository;
 import org.eclipse.rdf4j.repository.RepositoryConnection;
 
 import java.net.URI;
-import java.util.List;
-import java.util.Locale;
-import java.util.Objects;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
 
+import static com.metreeca.shim.Collections.set;
 import static com.metreeca.shim.Loggers.time;
 
 import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.CompletableFuture.failedFuture;
+import static java.util.concurrent.CompletableFuture.supplyAsync;
+import static java.util.function.Predicate.not;
 
 /**
  * RDF4J-based graph store implementation.
@@ -53,6 +71,13 @@ import static java.util.Objects.requireNonNull;
  */
 public final class RDF4JStore implements Store {
 
+    private static final Executor EXECUTOR=Executors.newVirtualThreadPerTaskExecutor();
+    private static final int CONCURRENCY=2*Runtime.getRuntime().availableProcessors();
+
+    private static final int BATCH=10_000;
+    private static final int CHUNK=1_000;
+    private static final int PLANS=1_000;
+
     private static final ThreadLocal<RepositoryConnection> shared=new ThreadLocal<>();
 
 
@@ -68,88 +93,934 @@ public final class RDF4JStore implements Store {
     public static RDF4JStore rdf4j(final Repository repository) {
         return new RDF4JStore(
                 repository,
-                null
+                new _StoreOptions(
+                        null,
+                        BATCH,
+                        CHUNK,
+                        false,
+                        set(),
+                        false,
+                        IsolationLevels.SNAPSHOT_READ,
+                        RDF4JLimits.limits(),
+                        RDF4JMetrics.metrics(),
+                        false,
+                        false
+                ),
+                new _StorePool(repository, RDF4JPool.pool()),
+                new _StoreThrottle(EXECUTOR, CONCURRENCY),
+                new _StorePlans(PLANS),
+                new _StoreHierarchy(),
+                new _StoreTally(),
+                new _StoreGroup(Duration.ZERO)
+        );
+    }
+
+
+    //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private final Repository repository;
+    private final _StoreOptions options;
+
+    private final _StorePool pool;
+    private final _StoreThrottle throttle;
+    private final _StorePlans plans;
+    private final _StoreHierarchy classes;
+    private final _StoreTally tally;
+    private final _StoreGroup group;
+
+    @SuppressWarnings("NonConstantLogger")
+    private final Logger logger=Logger.getLogger(getClass().getName()); // dynamic logging from concrete subclasses
+
+
+    private RDF4JStore(
+            final Repository repository,
+            final _StoreOptions options,
+            final _StorePool pool,
+            final _StoreThrottle throttle,
+            final _StorePlans plans,
+            final _StoreHierarchy classes,
+            final _StoreTally tally,
+            final _StoreGroup group
+    ) {
+
+        if ( repository == null ) {
+            throw new NullPointerException("null repository");
+        }
+
+        this.repository=repository;
+        this.options=options;
+
+        this.pool=pool;
+        this.throttle=throttle;
+        this.plans=plans;
+        this.classes=classes;
+        this.tally=tally;
+        this.group=group;
+    }
+
+
+    /**
+     * Retrieves the underlying RDF4J repository.
+     *
+     * @return the repository used for data storage
+     */
+    public Repository repository() {
+        return repository;
+    }
+
+
+    /**
+     * Retrieves the current named graph context.
+     *
+     * @return the context URI for named graph operations; {@code null} for default graph
+     */
+    public URI context() {
+        return options.context();
+    }
+
+    /**
+     * Configures the named graph context for operations.
+     *
+     * @param context the context URI for named graph operations; {@code null} for default graph
+     *
+     * @return a new store instance with the specified context
+     *
+     * @throws IllegalArgumentException if {@code context} is not absolute
+     */
+    public RDF4JStore context(final URI context) {
+        return new RDF4JStore(
+                repository,
+                options.context(context),
+                pool,
+                throttle,
+                plans,
+                classes,
+                tally,
+                group
+        );
+    }
+
+
+    /**
+     * Retrieves the connection pool configuration.
+     *
+     * @return the configuration of the pool of repository connections used by top-level operations
+     */
+    public RDF4JPool pool() {
+        return pool.pool();
+    }
+
+    /**
+     * Configures the connection pool.
+     *
+     * <p>Connections pooled by the current store are not shared with the new store instance; stores derived from
+     * the new instance by further configuration share its pool.</p>
+     *
+     * @param pool the configuration of the pool of repository connections used by top-level operations
+     *
+     * @return a new store instance with the specified connection pool
+     *
+     * @throws NullPointerException if {@code pool} is {@code null}
+     */
+    public RDF4JStore pool(final RDF4JPool pool) {
+
+        if ( pool == null ) {
+            throw new NullPointerException("null pool");
+        }
+
+        return new RDF4JStore(
+                repository,
+                options,
+                new _StorePool(repository, pool),
+                throttle,
+                plans,
+                classes,
+                tally,
+                group
+        );
+    }
+
+    /**
+     * Retrieves connection pool usage statistics.
+     *
+     * @return a snapshot of the current usage statistics of the connection pool
+     */
+    public RDF4JPool.Stats connections() {
+        return pool.stats();
+    }
+
+
+    /**
+     * Retrieves query plan cache statistics.
+     *
+     * <p>Retrieval query templates are generated once for each distinct query shape, that is combination of target
+     * property, query model, criteria structure, slice and preferred locales, and reused afterwards; anchor resources,
+     * filter constants and cursor values are bound to placeholder variables, so requests differing only in their
+     * values share the same plan.</p>
+     *
+     * @return a snapshot of the current statistics of the query plan cache
+     */
+    public Plans plans() {
+        return plans.stats();
+    }
+
+
+    /**
+     * Retrieves property update statistics.
+     *
+     * <p>Property values written by update and mutate operations are diffed against the stored state, so that only
+     * changed statements are actually removed or added.</p>
+     *
+     * @return a snapshot of the current property update statistics
+     */
+    public Updates updates() {
+        return tally.stats();
+    }
+
+
+    /**
+     * Retrieves the query executor.
+     *
+     * @return the executor running the queries and updates issued by store operations
+     */
+    public Executor executor() {
+        return throttle.executor();
+    }
+
+    /**
+     * Configures the query executor.
+     *
+     * <p>Queries and updates issued by store operations are executed asynchronously by the executor, in order to
+     * overlap blocking repository I/O; defaults to a shared executor creating a new virtual thread for each task.
+     * The executor is not shut down when the store is closed.</p>
+     *
+     * @param executor the executor running the queries and updates issued by store operations
+     *
+     * @return a new store instance with the specified query executor
+     *
+     * @throws NullPointerException if {@code executor} is {@code null}
+     */
+    public RDF4JStore executor(final Executor executor) {
+
+        if ( executor == null ) {
+            throw new NullPointerException("null executor");
+        }
+
+        return new RDF4JStore(
+                repository,
+                options,
+                pool,
+                new _StoreThrottle(executor, throttle.concurrency()),
+                plans,
+                classes,
+                tally,
+                group
+        );
+    }
+
+
+    /**
+     * Retrieves the query concurrency limit.
+     *
+     * @return the maximum number of queries and updates concurrently in flight for the store
+     */
+    public int concurrency() {
+        return throttle.concurrency();
+    }
+
+    /**
+     * Configures the query concurrency limit.
+     *
+     * <p>Surplus queries and updates are queued and dispatched to the {@linkplain #executor() executor} as in-flight
+     * ones complete; defaults to twice the available processors. The limit is shared by stores derived from the new
+     * instance by further configuration.</p>
+     *
+     * @param concurrency the maximum number of queries and updates concurrently in flight for the store
+     *
+     * @return a new store instance with the specified query concurrency limit
+     *
+     * @throws IllegalArgumentException if {@code concurrency} is not positive
+     */
+    public RDF4JStore concurrency(final int concurrency) {
+
+        if ( concurrency < 1 ) {
+            throw new IllegalArgumentException(format("non-positive concurrency limit <%d>", concurrency));
+        }
+
+        return new RDF4JStore(
+                repository,
+                options,
+                pool,
+                new _StoreThrottle(throttle.executor(), concurrency),
+                plans,
+                classes,
+                tally,
+                group
+        );
+    }
+
+
+    /**
+     * Retrieves the write batch size.
+     *
+     * @return the maximum number of statements added to or removed from the repository in a single bulk operation
+     */
+    public int batch() {
+        return options.batch();
+    }
+
+    /**
+     * Configures the write batch size.
+     *
+     * <p>Statements generated by write operations are accumulated and flushed to the repository with a single bulk
+     * {@linkplain RepositoryConnection#add(Iterable, org.eclipse.rdf4j.model.Resource...) add} or
+     * {@linkplain RepositoryConnection#remove(Iterable, org.eclipse.rdf4j.model.Resource...) remove} operation
+     * whenever the threshold is reached; defaults to {@value #BATCH}.</p>
+     *
+     * @param batch the maximum number of statements added to or removed from the repository in a single bulk
+     *              operation
+     *
+     * @return a new store instance with the specified write batch size
+     *
+     * @throws IllegalArgumentException if {@code batch} is not positive
+     */
+    public RDF4JStore batch(final int batch) {
+        return new RDF4JStore(
+                repository,
+                options.batch(batch),
+                pool,
+                throttle,
+                plans,
+                classes,
+                tally,
+                group
+        );
+    }
+
+
+    /**
+     * Retrieves the streaming chunk size.
+     *
+     * @return the maximum number of resources committed in a single transaction by
+     *         {@linkplain #insert(Stream, IntConsumer) streaming insertions} and the maximum number of items fetched in
+     *         a single page by {@linkplain #stream(Valuable, List) streaming retrievals}
+     */
+    public int chunk() {
+        return options.chunk();
+    }
+
+    /**
+     * Configures the streaming chunk size.
+     *
+     * <p>Resources pulled from the stream by {@linkplain #insert(Stream, IntConsumer) streaming insertions} are
+     * buffered and committed in consecutive transactions whenever the threshold is reached; items delivered by
+     * {@linkplain #stream(Valuable, List) streaming retrievals} are fetched in consecutive pages of the same size;
+     * defaults to {@value #CHUNK}.</p>
+     *
+     * @param chunk the maximum number of resources committed in a single transaction by streaming insertions and of
+     *              items fetched in a single page by streaming retrievals
+     *
+     * @return a new store instance with the specified streaming chunk size
+     *
+     * @throws IllegalArgumentException if {@code chunk} is not positive
+     */
+    public RDF4JStore chunk(final int chunk) {
+        return new RDF4JStore(
+                repository,
+                options.chunk(chunk),
+                pool,
+                throttle,
+                plans,
+                classes,
+                tally,
+                group
+        );
+    }
+
+
+    /**
+     * Retrieves the parallel read mode.
+     *
+     * @return {@code true} if top-level retrievals evaluate independent queries over multiple pooled connections
+     */
+    public boolean parallel() {
+        return options.parallel();
+    }
+
+    /**
+     * Configures the parallel read mode.
+     *
+     * <p>If enabled, the independent queries generated by {@linkplain #retrieve(Valuable, List) retrievals} not
+     * nested inside {@linkplain #execute(Function) transactions} are evaluated in parallel over spare pooled
+     * connections, falling back to the connection of the operation when no spare connection is immediately
+     * available; otherwise, they are serialized over the connection of the operation. Defaults to {@code false}.</p>
+     *
+     * <p>As spare connections can't share the snapshot of the connection of the operation, queries are fanned out only
+     * if the {@linkplain #isolation(IsolationLevel) read isolation level} is {@code null} or
+     * {@link IsolationLevels#NONE}, that is if retrievals aren't expected to observe a consistent snapshot anyway.</p>
+     *
+     * @param parallel {@code true} if top-level retrievals are to evaluate independent queries over multiple pooled
+     *                 connections
+     *
+     * @return a new store instance with the specified parallel read mode
+     */
+    public RDF4JStore parallel(final boolean parallel) {
+        return new RDF4JStore(
+                repository,
+                options.parallel(parallel),
+                pool,
+                throttle,
+                plans,
+                classes,
+                tally,
+                group
+        );
+    }
+
+
+    /**
+     * Retrieves the group commit window.
+     *
+     * @return the time window within which concurrent write operations are coalesced into a single transaction;
+     *         zero if group commit is disabled
+     */
+    public Duration group() {
+        return group.window();
+    }
+
+    /**
+     * Configures the group commit window.
+     *
+     * <p>If enabled, write operations not nested inside {@linkplain #execute(Function) transactions} and submitted
+     * concurrently within the window are executed in a single shared transaction, amortizing commit costs under
+     * concurrent write load; each operation returns only after the shared commit succeeds. Failures are isolated: an
+     * operation failing in the shared transaction is reported to its caller only, while the other operations are
+     * executed again in a new transaction. Each operation is delayed by at most the window. Defaults to zero, that is
+     * to group commit being disabled.</p>
+     *
+     * @param window the time window within which concurrent write operations are coalesced into a single transaction;
+     *               zero to disable group commit
+     *
+     * @return a new store instance with the specified group commit window
+     *
+     * @throws NullPointerException     if {@code window} is {@code null}
+     * @throws IllegalArgumentException if {@code window} is negative
+     */
+    public RDF4JStore group(final Duration window) {
+
+        if ( window == null ) {
+            throw new NullPointerException("null window");
+        }
+
+        if ( window.isNegative() ) {
+            throw new IllegalArgumentException(format("negative group commit window <%s>", window));
+        }
+
+        return new RDF4JStore(
+                repository,
+                options,
+                pool,
+                throttle,
+                plans,
+                classes,
+                tally,
+                new _StoreGroup(window)
+        );
+    }
+
+
+    /**
+     * Retrieves the full-text indexed properties.
+     *
+     * @return the set of properties indexed by the full-text index of the underlying repository
+     */
+    public Set<URI> search() {
+        return options.search();
+    }
+
+    /**
+     * Configures the full-text indexed properties.
+     *
+     * <p>Keyword {@linkplain com.metreeca.mesh.queries.Criterion#like(String) like} constraints on the values of
+     * the listed forward properties are pushed down to the full-text index of the underlying repository, as exposed
+     * by an RDF4J {@code LuceneSail} through {@code search:matches} patterns; constraints on other properties or
+     * computed expressions are evaluated with regular expressions. Keywords are matched as word prefixes, like in
+     * regular expression evaluation, but matching is delegated to the analyzer configured for the index and applies
+     * to the subject of the property rather than to individual values. Defaults to an empty set.</p>
+     *
+     * @param search the properties indexed by the full-text index of the underlying repository; empty to disable
+     *               full-text index lookups
+     *
+     * @return a new store instance with the specified full-text indexed properties
+     *
+     * @throws NullPointerException     if {@code search} is {@code null} or contains {@code null} values
+     * @throws IllegalArgumentException if {@code search} contains relative URIs
+     */
+    public RDF4JStore search(final Collection<URI> search) {
+
+        if ( search == null || search.stream().anyMatch(Objects::isNull) ) {
+            throw new NullPointerException("null search properties");
+        }
+
+        search.stream().filter(not(URI::isAbsolute)).findFirst().ifPresent(uri -> {
+            throw new IllegalArgumentException(format("relative search property <%s>", uri));
+        });
+
+        return new RDF4JStore(
+                repository,
+                options.search(set(search)),
+                pool,
+                throttle,
+                new _StorePlans(plans.size()), // generated queries depend on indexed properties
+                classes,
+                tally,
+                group
+        );
+    }
+
+
+    /**
+     * Retrieves the class hierarchy caching mode.
+     *
+     * @return {@code true} if class constraints are expanded using a cached class hierarchy
+     */
+    public boolean hierarchy() {
+        return options.hierarchy();
+    }
+
+    /**
+     * Configures the class hierarchy caching mode.
+     *
+     * <p>If enabled, the class hierarchy defined by {@code rdfs:subClassOf} statements is loaded once for each graph
+     * context and cached, and {@linkplain com.metreeca.mesh.shapes.Shape#clazz() class} constraints on query results
+     * are expanded into an explicit list of matching classes, rather than being evaluated with
+     * {@code rdf:type/rdfs:subClassOf*} property paths. The cache is shared by all the store instances derived from
+     * this one and is refreshed when subclass links are written through the store or on {@linkplain #refresh()
+     * demand}. Defaults to {@code false}.</p>
+     *
+     * @param hierarchy {@code true} if class constraints are to be expanded using a cached class hierarchy
+     *
+     * @return a new store instance with the specified class hierarchy caching mode
+     */
+    public RDF4JStore hierarchy(final boolean hierarchy) {
+        return new RDF4JStore(
+                repository,
+                options.hierarchy(hierarchy),
+                pool,
+                throttle,
+                plans,
+                classes,
+                tally,
+                group
+        );
+    }
+
+    /**
+     * Refreshes the cached class hierarchy.
+     *
+     * <p>Discards the cached class hierarchy, which will be reloaded on next use; to be invoked after the class
+     * hierarchy is modified bypassing the store, for instance by loading an updated ontology directly into the
+     * underlying repository.</p>
+     *
+     * @return this store
+     */
+    public RDF4JStore refresh() {
+
+        classes.invalidate();
+
+        return this;
+    }
+
+
+
+    /**
+     * Retrieves the read isolation level.
+     *
+     * @return the isolation level of the transactions executing top-level read operations; {@code null} if read
+     *         operations are executed without transactions
+     */
+    public IsolationLevel isolation() {
+        return options.isolation();
+    }
+
+    /**
+     * Configures the read isolation level.
+     *
+     * <p>Top-level {@linkplain #retrieve(Valuable, List) retrievals} and {@linkplain #execute(boolean, Function)
+     * read-only tasks} are executed in transactions with the specified isolation level, or in auto-commit mode without
+     * explicit transactions, if {@code isolation} is {@code null}; lighter isolation levels, like
+     * {@link IsolationLevels#NONE}, reduce locking overhead on native stores at the price of read consistency across
+     * the multiple queries generated by a single operation. Operations nested inside active transactions inherit
+     * their isolation level. Defaults to {@link IsolationLevels#SNAPSHOT_READ}.</p>
+     *
+     * @param isolation the isolation level of the transactions executing top-level read operations; {@code null} to
+     *                  execute read operations without transactions
+     *
+     * @return a new store instance with the specified read isolation level
+     */
+    public RDF4JStore isolation(final IsolationLevel isolation) {
+        return new RDF4JStore(
+                repository,
+                options.isolation(isolation),
+                pool,
+                throttle,
+                plans,
+                classes,
+                tally,
+                group
+        );
+    }
+
+
+    /**
+     * Retrieves the query limits configuration.
+     *
+     * @return the safety rails applied to the queries generated by read operations
+     */
+    public RDF4JLimits limits() {
+        return options.limits();
+    }
+
+    /**
+     * Configures the query limits.
+     *
+     * <p>Query plans cached by the current store are not shared with the new store instance, as the configured page
+     * sizes are compiled into the generated queries.</p>
+     *
+     * @param limits the safety rails applied to the queries generated by read operations
+     *
+     * @return a new store instance with the specified query limits
+     *
+     * @throws NullPointerException if {@code limits} is {@code null}
+     */
+    public RDF4JStore limits(final RDF4JLimits limits) {
+
+        if ( limits == null ) {
+            throw new NullPointerException("null limits");
+        }
+
+        return new RDF4JStore(
+                repository,
+                options.limits(limits),
+                pool,
+                throttle,
+                new _StorePlans(plans.size()),
+                classes,
+                tally,
+                group
         );
     }
 
 
-    //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    /**
+     * Retrieves the metrics listener.
+     *
+     * @return the listener receiving measurements about the execution of store operations
+     */
+    public RDF4JMetrics metrics() {
+        return options.metrics();
+    }
+
+    /**
+     * Configures the metrics listener.
+     *
+     * <p>The listener is notified about each SPARQL query issued, each batch of updates applied and each execution
+     * round performed by store operations, and receives a summary of the measurements accumulated over each
+     * operation. Defaults to a listener ignoring all measurements.</p>
+     *
+     * @param metrics the listener receiving measurements about the execution of store operations
+     *
+     * @return a new store instance with the specified metrics listener
+     *
+     * @throws NullPointerException if {@code metrics} is {@code null}
+     */
+    public RDF4JStore metrics(final RDF4JMetrics metrics) {
+
+        if ( metrics == null ) {
+            throw new NullPointerException("null metrics");
+        }
+
+        return new RDF4JStore(
+                repository,
+                options.metrics(metrics),
+                pool,
+                throttle,
+                plans,
+                classes,
+                tally,
+                group
+        );
+    }
+
+
+    /**
+     * Retrieves the CONSTRUCT frame retrieval mode.
+     *
+     * @return {@code true} if resource frames are retrieved with CONSTRUCT queries and assembled from a local graph
+     */
+    public boolean construct() {
+        return options.construct();
+    }
+
+    /**
+     * Configures the CONSTRUCT frame retrieval mode.
+     *
+     * <p>If enabled, the properties requested by the model of each resource frame, including those of its nested
+     * resource models, are retrieved by a single CONSTRUCT query; the returned statements are loaded into an indexed
+     * in-memory graph and the nested values of the frame are assembled locally, reducing the result set overhead of
+     * wide frames, which would be otherwise retrieved as a tuple for each property value. Otherwise, only nested
+     * frames are speculatively retrieved, as tuples of a SELECT query. Defaults to {@code false}.</p>
+     *
+     * @param construct {@code true} if resource frames are to be retrieved with CONSTRUCT queries
+     *
+     * @return a new store instance with the specified CONSTRUCT frame retrieval mode
+     */
+    public RDF4JStore construct(final boolean construct) {
+        return new RDF4JStore(
+                repository,
+                options.construct(construct),
+                pool,
+                throttle,
+                plans,
+                classes,
+                tally,
+                group
+        );
+    }
+
+
+    /**
+     * Retrieves the local edge retrieval mode.
+     *
+     * @return {@code true} if resource edges are retrieved with direct statement lookups
+     */
+    public boolean local() {
+        return options.local();
+    }
+
+    /**
+     * Configures the local edge retrieval mode.
+     *
+     * <p>If enabled, the edges linking resources to their property values, including the stored values diffed by
+     * property updates, are retrieved with direct
+     * {@linkplain RepositoryConnection#getStatements(org.eclipse.rdf4j.model.Resource, org.eclipse.rdf4j.model.IRI,
+     * org.eclipse.rdf4j.model.Value, org.eclipse.rdf4j.model.Resource...) statement lookups}, bypassing SPARQL query
+     * generation, parsing and optimization; otherwise, they are retrieved with generated SPARQL queries, batched over
+     * multiple resources. Lookups are cheap on embedded repositories, like sail repositories backed by memory or
+     * native stores, but would require a round trip for each resource on remote ones. Defaults to {@code false}.</p>
+     *
+     * @param local {@code true} if resource edges are to be retrieved with direct statement lookups
+     *
+     * @return a new store instance with the specified local edge retrieval mode
+     */
+    public RDF4JStore local(final boolean local) {
+        return new RDF4JStore(
+                repository,
+                options.local(local),
+                pool,
+                throttle,
+                plans,
+                classes,
+                tally,
+                group
+        );
+    }
+
+
+    @Override
+    public Value retrieve(final Valuable model, final List<Locale> locales) {
+
+        if ( model == null ) {
+            throw new NullPointerException("null model");
+        }
+
+        if ( locales == null || locales.stream().anyMatch(Objects::isNull) ) {
+            throw new NullPointerException("null langs");
+        }
+
+        final boolean fanout=fanout();
+
+        return txn(true, connection -> new _StoreReader(new _StoreLoader(this, connection, true, fanout ? pool : null, locales)).retrieve(
+                requireNonNull(model.toValue(), "null supplied model")
+        ));
+    }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Items matched by {@linkplain Query query} values are fetched on demand in consecutive pages of at most
+     * {@linkplain #chunk() chunk} items, inside a single transaction on a dedicated pooled connection, released as
+     * soon as the last page is fetched or when the returned stream is closed, whichever comes first; if a transaction
+     * is already active on the calling thread, pages are fetched within it. Other values are retrieved at once.</p>
+     *
+     * <p>Streams abandoned before being fully consumed hold their connection until closed: partially consumed
+     * streams must be closed, preferably in a try-with-resources block, lest the connection pool be exhausted.</p>
+     *
+     * <p>Pages following the first one are positioned with a {@linkplain Query#next(Valuable) keyset cursor} after
+     * the last item of the previous page, provided the model projects all sort keys and the query includes no focus
+     * criteria; otherwise, they are positioned with increasing offsets.</p>
+     *
+     * <p>Pages never exceed the configured {@linkplain RDF4JLimits#max() maximum page size} and are retrieved as
+     * individual read operations, each subject to its own {@linkplain RDF4JLimits#rows() row budget}: streaming is
+     * the supported way of walking collections larger than the configured query limits.</p>
+     */
+    @Override
+    public Stream<Value> stream(final Valuable model, final List<Locale> locales) {
+
+        if ( model == null ) {
+            throw new NullPointerException("null model");
+        }
+
+        if ( locales == null || locales.stream().anyMatch(Objects::isNull) ) {
+            throw new NullPointerException("null langs");
+        }
+
+        final Value value=requireNonNull(model.toValue(), "null supplied model");
+
+        return value.value(Query.class).map(query -> {
+
+            final RepositoryConnection active=shared.get();
+
+            if ( active != null && active.getRepository().equals(repository) ) {
+                return pages(active, query, locales, () -> {});
+            } else {
+
+                final RepositoryConnection connection=pool.borrow();
+                final AtomicBoolean released=new AtomicBoolean();
+
+                final Runnable release=() -> {
+                    if ( released.compareAndSet(false, true) ) { pool.release(connection); } // rolls back
+                };
+
+                try {
+
+                    begin(connection, true);
+
+                    return pages(connection, query, locales, release).onClose(release);
+
+                } catch ( final RuntimeException e ) {
+
+                    release.run();
+
+                    throw unwrap(e);
+
+                }
+
+            }
+
+        }).orElseGet(() -> Store.items(retrieve(value, locales)));
+    }
+
+    /*
+     * Fetches query pages on demand, running the release task as soon as no more pages are available or a page
+     * fetch fails, so that fully consumed streams don't hold connections until closed.
+     */
+    private Stream<Value> pages(
+            final RepositoryConnection connection, final Query query, final List<Locale> locales,
+            final Runnable release
+    ) {
+
+        final int offset=query.offset();
+        final int limit=query.limit(); // 0 for unlimited
+        final int chunk=options.chunk();
+        final int max=options.limits().max();
+        final int size=max > 0 ? Math.min(chunk, max) : chunk; // pages are not to be clamped
+
+        final boolean keyset=keyset(query);
+
+        final AtomicReference<Query> next=new AtomicReference<>(query);
+        final AtomicInteger fetched=new AtomicInteger();
+        final AtomicBoolean exhausted=new AtomicBoolean();
+
+        return Stream
+
+                .generate(() -> {
+
+                    final int skip=fetched.get();
+
+                    if ( exhausted.get() || limit > 0 && skip >= limit ) {
+
+                        exhausted.set(true);
+                        release.run();
+
+                        return List.<Value>of();
+
+                    } else {
+
+                        final Query current=keyset ? next.get() : query.offset(offset+skip);
+
+                        final List<Value> items;
+
+                        try {
+
+                            final _StoreReader reader=new _StoreReader(
+                                    new _StoreLoader(this, connection, true, null, locales)
+                            );
+
+                            items=Store.items(reader.retrieve(Value.value(
+                                    current.limit(limit > 0 ? Math.min(size, limit-skip) : size)
+                            ))).toList();
 
-    private final Repository repository;
-    private final URI context;
+                        } catch ( final RuntimeException e ) {
 
-    @SuppressWarnings("NonConstantLogger")
-    private final Logger logger=Logger.getLogger(getClass().getName()); // dynamic logging from concrete subclasses
+                            exhausted.set(true);
+                            release.run();
 
+                            throw e;
 
-    private RDF4JStore(
-            final Repository repository,
-            final URI context
-    ) {
+                        }
 
-        if ( repository == null ) {
-            throw new NullPointerException("null repository");
-        }
+                        fetched.addAndGet(items.size());
 
-        if ( context != null && !context.isAbsolute() ) {
-            throw new IllegalArgumentException(format("relative partition URI <%s>", context));
-        }
+                        if ( items.isEmpty() ) {
 
-        this.repository=repository;
-        this.context=context;
-    }
+                            exhausted.set(true);
+                            release.run();
 
+                        } else if ( keyset ) {
 
-    /**
-     * Retrieves the underlying RDF4J repository.
-     *
-     * @return the repository used for data storage
-     */
-    public Repository repository() {
-        return repository;
-    }
+                            next.set(current.next(items.getLast()));
 
+                        }
 
-    /**
-     * Retrieves the current named graph context.
-     *
-     * @return the context URI for named graph operations; {@code null} for default graph
-     */
-    public URI context() {
-        return context;
+                        return items;
+
+                    }
+
+                })
+
+                .takeWhile(not(List::isEmpty))
+                .flatMap(List::stream);
     }
 
-    /**
-     * Configures the named graph context for operations.
-     *
-     * @param context the context URI for named graph operations; {@code null} for default graph
-     *
-     * @return a new store instance with the specified context
-     *
-     * @throws IllegalArgumentException if {@code context} is not absolute
+    /*
+     * Checks if query pages may be walked with a keyset cursor positioned after the last item of the previous page,
+     * rather than with increasing offsets, whose cost grows with the number of skipped items: sort key values must
+     * be extracted from retrieved items, so tables, focus criteria and computed or unprojected keys are excluded.
      */
-    public RDF4JStore context(final URI context) {
-        return new RDF4JStore(
-                repository,
-                context
-        );
-    }
+    private static boolean keyset(final Query query) {
 
+        final Value model=query.model();
 
-    @Override
-    public Value retrieve(final Valuable model, final List<Locale> locales) {
+        return model.value(Specs.class).isEmpty()
+               && query.criteria().values().stream().noneMatch(criterion -> criterion.focus().isPresent())
+               && query.keys().stream().allMatch(key -> {
 
-        if ( model == null ) {
-            throw new NullPointerException("null model");
-        }
+            if ( key.isComputed() ) { return false; } else {
 
-        if ( locales == null || locales.stream().anyMatch(Objects::isNull) ) {
-            throw new NullPointerException("null langs");
-        }
+                Value target=model;
 
-        return txn(connection -> new _StoreReader(new _StoreLoader(this, connection)).retrieve(
-                requireNonNull(model.toValue(), "null supplied model"), locales
-        ));
+                for (final String step : key.path()) { target=target.get(step); }
+
+                return target.array().isEmpty() && (target.object().isPresent()
+                        ? target.id().isPresent()
+                        : !target.equals(Value.Nil())
+                );
+
+            }
+
+        });
     }
 
 
@@ -160,7 +1031,7 @@ public final class RDF4JStore implements Store {
             throw new NullPointerException("null frame");
         }
 
-        return time(() -> txn(connection -> new _StoreWriter(new _StoreLoader(this, connection)).create(
+        return time(() -> write(connection -> new _StoreWriter(new _StoreLoader(this, connection)).create(
                 requireNonNull(value.toValue(), "null supplied value")
         ))).apply((elapsed, resources) -> logger.info(() -> format(
                 "created <%,d> resources in <%,d> ms", resources, elapsed
@@ -174,7 +1045,7 @@ public final class RDF4JStore implements Store {
             throw new NullPointerException("null frame");
         }
 
-        return time(() -> txn(connection -> new _StoreWriter(new _StoreLoader(this, connection)).update(
+        return time(() -> write(connection -> new _StoreWriter(new _StoreLoader(this, connection)).update(
                 requireNonNull(value.toValue(), "null supplied value")
         ))).apply((elapsed, resources) -> logger.info(() -> format(
                 "updated <%,d> resources in <%,d> ms", resources, elapsed
@@ -188,7 +1059,7 @@ public final class RDF4JStore implements Store {
             throw new NullPointerException("null frame");
         }
 
-        return time(() -> txn(connection -> new _StoreWriter(new _StoreLoader(this, connection)).mutate(
+        return time(() -> write(connection -> new _StoreWriter(new _StoreLoader(this, connection)).mutate(
                 requireNonNull(value.toValue(), "null supplied value")
         ))).apply((elapsed, resources) -> logger.info(() -> format(
                 "mutated <%,d> resources in <%,d> ms", resources, elapsed
@@ -202,7 +1073,7 @@ public final class RDF4JStore implements Store {
             throw new NullPointerException("null frame");
         }
 
-        return time(() -> txn(connection -> new _StoreWriter(new _StoreLoader(this, connection)).delete(
+        return time(() -> write(connection -> new _StoreWriter(new _StoreLoader(this, connection)).delete(
                 requireNonNull(value.toValue(), "null supplied value")
         ))).apply((elapsed, resources) -> logger.info(() -> format(
                 "deleted <%,d> resources in <%,d> ms", resources, elapsed
@@ -217,13 +1088,69 @@ public final class RDF4JStore implements Store {
             throw new NullPointerException("null value");
         }
 
-        return time(() -> txn(connection -> new _StoreWriter(new _StoreLoader(this, connection)).insert(
+        return time(() -> write(connection -> new _StoreWriter(new _StoreLoader(this, connection)).insert(
                 requireNonNull(value.toValue(), "null supplied insert value")
         ))).apply((elapsed, resources) -> logger.info(() -> format(
                 "inserted <%,d> resources in <%,d> ms", resources, elapsed
         )));
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Resources are buffered and committed in consecutive transactions of at most {@linkplain #chunk() chunk}
+     * resources each, keeping memory usage independent of the stream size; the progress callback is notified after
+     * each commit. If the operation fails, previously committed chunks are retained. If a transaction is already
+     * active on the calling thread, all chunks are executed within it.</p>
+     */
+    @Override
+    public int insert(final Stream<? extends Valuable> values, final IntConsumer progress) {
+
+        if ( values == null ) {
+            throw new NullPointerException("null values");
+        }
+
+        if ( progress == null ) {
+            throw new NullPointerException("null progress");
+        }
+
+        return time(() -> {
+
+            final int chunk=options.chunk();
+            final List<Value> buffer=new ArrayList<>();
+
+            int inserted=0;
+
+            for (final Iterator<? extends Valuable> iterator=values.iterator(); iterator.hasNext(); ) {
+
+                final Value value=requireNonNull(
+                        requireNonNull(iterator.next(), "null value").toValue(),
+                        "null supplied insert value"
+                );
+
+                buffer.addAll(value.array().orElseGet(() -> List.of(value)));
+
+                if ( buffer.size() >= chunk || !iterator.hasNext() ) {
+
+                    inserted+=txn(connection -> new _StoreWriter(new _StoreLoader(this, connection)).insert(
+                            Value.array(buffer)
+                    ));
+
+                    buffer.clear();
+
+                    progress.accept(inserted);
+
+                }
+
+            }
+
+            return inserted;
+
+        }).apply((elapsed, resources) -> logger.info(() -> format(
+                "streamed <%,d> resources in <%,d> ms", resources, elapsed
+        )));
+    }
+
     @Override
     public int remove(final Valuable value) {
 
@@ -231,7 +1158,7 @@ public final class RDF4JStore implements Store {
             throw new NullPointerException("null value");
         }
 
-        return time(() -> txn(connection -> new _StoreWriter(new _StoreLoader(this, connection)).remove(
+        return time(() -> write(connection -> new _StoreWriter(new _StoreLoader(this, connection)).remove(
                 requireNonNull(value.toValue(), "null supplied remove value")
         ))).apply((elapsed, resources) -> logger.info(() -> format(
                 "removed <%,d> resources in <%,d> ms", resources, elapsed
@@ -249,7 +1176,7 @@ public final class RDF4JStore implements Store {
             throw new NullPointerException("null remove");
         }
 
-        return time(() -> txn(connection -> new _StoreWriter(new _StoreLoader(this, connection)).modify(
+        return time(() -> write(connection -> new _StoreWriter(new _StoreLoader(this, connection)).modify(
                 requireNonNull(insert.toValue(), "null supplied insert value"),
                 requireNonNull(remove.toValue(), "null supplied remove value")
         ))).apply((elapsed, resources) -> logger.info(() -> format(
@@ -258,6 +1185,113 @@ public final class RDF4JStore implements Store {
     }
 
 
+    //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The operation is executed on a virtual thread, so that the store {@linkplain #executor(Executor) executor}
+     * is never parked waiting for the queries it runs. If a transaction is already active on the calling thread, the
+     * operation is executed synchronously within it.</p>
+     */
+    @Override
+    public CompletionStage<Value> retrieveAsync(final Valuable model, final List<Locale> locales) {
+
+        if ( model == null ) {
+            throw new NullPointerException("null model");
+        }
+
+        if ( locales == null || locales.stream().anyMatch(Objects::isNull) ) {
+            throw new NullPointerException("null langs");
+        }
+
+        return async(() -> retrieve(model, locales));
+    }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The operation is executed on a virtual thread, coalescing it with concurrent writes if
+     * {@linkplain #group(Duration) group commit} is enabled. If a transaction is already active on the calling
+     * thread, the operation is executed synchronously within it.</p>
+     */
+    @Override
+    public CompletionStage<Integer> createAsync(final Valuable value) {
+
+        if ( value == null ) {
+            throw new NullPointerException("null frame");
+        }
+
+        return async(() -> create(value));
+    }
+
+    @Override
+    public CompletionStage<Integer> updateAsync(final Valuable value) {
+
+        if ( value == null ) {
+            throw new NullPointerException("null frame");
+        }
+
+        return async(() -> update(value));
+    }
+
+    @Override
+    public CompletionStage<Integer> mutateAsync(final Valuable value) {
+
+        if ( value == null ) {
+            throw new NullPointerException("null frame");
+        }
+
+        return async(() -> mutate(value));
+    }
+
+    @Override
+    public CompletionStage<Integer> deleteAsync(final Valuable value) {
+
+        if ( value == null ) {
+            throw new NullPointerException("null frame");
+        }
+
+        return async(() -> delete(value));
+    }
+
+
+    @Override
+    public CompletionStage<Integer> insertAsync(final Valuable value) {
+
+        if ( value == null ) {
+            throw new NullPointerException("null value");
+        }
+
+        return async(() -> insert(value));
+    }
+
+    @Override
+    public CompletionStage<Integer> removeAsync(final Valuable value) {
+
+        if ( value == null ) {
+            throw new NullPointerException("null value");
+        }
+
+        return async(() -> remove(value));
+    }
+
+    @Override
+    public CompletionStage<Integer> modifyAsync(final Valuable insert, final Valuable remove) {
+
+        if ( insert == null ) {
+            throw new NullPointerException("null insert");
+        }
+
+        if ( remove == null ) {
+            throw new NullPointerException("null remove");
+        }
+
+        return async(() -> modify(insert, remove));
+    }
+
+
     @Override public <V> V execute(final Function<Store, V> task) {
 
         if ( task == null ) {
@@ -267,21 +1301,81 @@ public final class RDF4JStore implements Store {
         return txn(connection -> task.apply(this));
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Read-only tasks not nested inside active transactions are executed with the configured
+     * {@linkplain #isolation(IsolationLevel) read isolation level}.</p>
+     */
+    @Override public <V> V execute(final boolean readonly, final Function<Store, V> task) {
+
+        if ( task == null ) {
+            throw new NullPointerException("null task");
+        }
+
+        return txn(readonly, connection -> task.apply(this));
+    }
+
+
+    /**
+     * Closes idle pooled connections.
+     *
+     * <p>The underlying repository is not shut down.</p>
+     */
+    @Override public void close() {
+        pool.close();
+    }
+
 
     //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
+    _StoreThrottle throttle() {
+        return throttle;
+    }
+
+    _StorePlans cache() {
+        return plans;
+    }
+
+    _StoreHierarchy classes() {
+        return classes;
+    }
+
+    _StoreTally tally() {
+        return tally;
+    }
+
     public <V> V txn(final Function<RepositoryConnection, V> task) {
 
         if ( task == null ) {
             throw new NullPointerException("null task");
         }
 
+        return txn(false, task);
+    }
+
+
+    /*
+     * Checks if read queries are to be fanned out over spare pooled connections: spare connections don't see pending
+     * changes and don't share the snapshot of the connection of the operation.
+     */
+    private boolean fanout() {
+        final IsolationLevel isolation=options.isolation();
+
+        return options.parallel() && shared.get() == null
+                && (isolation == null || isolation.equals(IsolationLevels.NONE));
+    }
+
+    /*
+     * Executes a task in a transaction, unless one is already active, using the read isolation level for read tasks.
+     */
+    private <V> V txn(final boolean read, final Function<RepositoryConnection, V> task) {
         return connect(connection -> {
             if ( connection.isActive() ) { return task.apply(connection); } else {
 
                 try {
 
-                    connection.begin();
+                    begin(connection, read);
 
                     final V value=task.apply(connection);
 
@@ -291,21 +1385,19 @@ public final class RDF4JStore implements Store {
 
                 } catch ( final RuntimeException e ) {
 
-                    if ( e.getCause() instanceof final ValidationException cause ) {
+                    throw unwrap(e);
 
-                        // !!! cause.validationReportAsModel() // !!! decode report
-
-                        throw (RuntimeException)cause; // ;(rdf4j) ValidationException doesn't extend Exception…
+                } finally {
 
-                    } else {
+                    try {
 
-                        throw e;
+                        if ( connection.isActive() ) { connection.rollback(); }
 
-                    }
+                    } finally {
 
-                } finally {
+                        classes.settle(connection);
 
-                    if ( connection.isActive() ) { connection.rollback(); }
+                    }
 
                 }
 
@@ -313,6 +1405,69 @@ public final class RDF4JStore implements Store {
         });
     }
 
+    /*
+     * Executes a write task, coalescing it with concurrent ones if group commit is enabled and no transaction is
+     * active on the calling thread.
+     */
+    private int write(final Function<RepositoryConnection, Integer> task) {
+
+        final RepositoryConnection active=shared.get();
+
+        return group.enabled() && (active == null || !active.getRepository().equals(repository))
+                ? group.submit(this, task)
+                : txn(task);
+    }
+
+    /*
+     * Executes a synchronous operation without blocking the caller, unless a transaction is already active on the
+     * calling thread; operations are executed on virtual threads rather than on the store executor, which runs the
+     * queries the operation waits for and would be exhausted by parked operations if bounded.
+     */
+    private <V> CompletableFuture<V> async(final Supplier<V> task) {
+
+        final RepositoryConnection active=shared.get();
+
+        if ( active != null && active.getRepository().equals(repository) ) {
+
+            try {
+
+                return completedFuture(task.get());
+
+            } catch ( final RuntimeException e ) {
+
+                return failedFuture(e);
+
+            }
+
+        } else {
+
+            return supplyAsync(task, command -> Thread.ofVirtual().start(command));
+
+        }
+    }
+
+    private void begin(final RepositoryConnection connection, final boolean read) {
+        if ( !read ) {
+            connection.begin();
+        } else if ( options.isolation() != null ) {
+            connection.begin(options.isolation());
+        }
+    }
+
+    private static RuntimeException unwrap(final RuntimeException e) {
+        if ( e.getCause() instanceof final ValidationException cause ) {
+
+            // !!! cause.validationReportAsModel() // !!! decode report
+
+            return (RuntimeException)cause; // ;(rdf4j) ValidationException doesn't extend Exception…
+
+        } else {
+
+            return e;
+
+        }
+    }
+
     public <V> V connect(final Function<RepositoryConnection, V> task) {
 
         if ( task == null ) {
@@ -323,9 +1478,9 @@ public final class RDF4JStore implements Store {
 
         if ( active != null && active.getRepository().equals(repository) ) { return task.apply(active); } else {
 
-            if ( !repository.isInitialized() ) { repository.init(); }
+            final RepositoryConnection connection=pool.borrow();
 
-            try ( final RepositoryConnection connection=repository.getConnection() ) { // !!! pooling
+            try {
 
                 shared.set(connection);
 
@@ -335,10 +1490,47 @@ public final class RDF4JStore implements Store {
 
                 shared.set(active);
 
+                pool.release(connection);
+
             }
 
         }
     }
 
 
+    //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Query plan cache statistics.
+     *
+     * @param cached the number of query plans currently cached
+     * @param hits   the total number of queries reusing a cached plan
+     * @param misses the total number of queries requiring a new plan
+     */
+    public static record Plans(
+
+            int cached,
+
+            long hits,
+            long misses
+
+    ) { }
+
+
+    /**
+     * Property update statistics.
+     *
+     * @param added   the total number of statements added by property updates
+     * @param removed the total number of statements removed by property updates
+     * @param saved   the total number of statement removals and insertions avoided by property updates, as unchanged
+     *                statements were retained rather than being removed and added again
+     */
+    public static record Updates(
+
+            long added,
+            long removed,
+            long saved
+
+    ) { }
+
 }
@@ -21,25 +21,31 @@ import com.metreeca.mesh.shapes.Property;
 import com.metreeca.shim.Collections;
 
 import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
 import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.GraphQuery;
+import org.eclipse.rdf4j.query.Operation;
 import org.eclipse.rdf4j.query.TupleQuery;
 import org.eclipse.rdf4j.query.impl.SimpleDataset;
 import org.eclipse.rdf4j.repository.RepositoryConnection;
 
 import java.net.URI;
-import java.util.Collection;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.Map.Entry;
-import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.logging.Logger;
 import java.util.stream.Stream;
 
 import static com.metreeca.mesh.Value.Nil;
 import static com.metreeca.mesh.rdf4j.Coder.*;
+import static com.metreeca.mesh.rdf4j.RDF4JMetrics.Worker.FETCHER;
 import static com.metreeca.mesh.rdf4j.SPARQL.*;
 import static com.metreeca.mesh.rdf4j.SPARQLConverter.json;
 import static com.metreeca.mesh.rdf4j.SPARQLConverter.rdf;
@@ -47,8 +53,9 @@ import static com.metreeca.mesh.shapes.Property.property;
 import static com.metreeca.shim.URIs.term;
 
 import static java.lang.String.format;
+import static java.util.Collections.newSetFromMap;
+import static java.util.concurrent.CompletableFuture.allOf;
 import static java.util.concurrent.CompletableFuture.completedFuture;
-import static java.util.concurrent.CompletableFuture.runAsync;
 import static java.util.function.Predicate.not;
 import static java.util.stream.Collectors.*;
 import static org.eclipse.rdf4j.model.util.Values.getValueFactory;
@@ -60,6 +67,9 @@ import static org.eclipse.rdf4j.model.util.Values.iri;
  * <p>Provides efficient lazy loading of graph data by batching property access
  * requests and generating optimized SPARQL queries. Supports both forward and reverse property navigation with
  * {@linkplain CompletableFuture} based asynchronous execution.</p>
+ *
+ * <p>If {@linkplain RDF4JStore#local(boolean) local} edge retrieval is enabled, edges are retrieved with direct
+ * statement lookups rather than with generated SPARQL queries.</p>
  */
 final class SPARQLFetcher extends _StoreLoader.Worker {
 
@@ -78,17 +88,27 @@ final class SPARQLFetcher extends _StoreLoader.Worker {
     //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
     private final URI context;
+    private final boolean construct;
+    private final boolean local;
 
     private final Map<Key, CompletableFuture<com.metreeca.mesh.Value>> edges=new ConcurrentHashMap<>();
 
+    private final Collection<Prefetch> prefetches=newSetFromMap(new ConcurrentHashMap<>());
+    private final Set<Value> existing=ConcurrentHashMap.newKeySet(); // resources reached by prefetched edges
+
 
-    SPARQLFetcher(final RDF4JStore rdf4j) {
+    SPARQLFetcher(final RDF4JStore rdf4j, final List<Locale> locales) {
+        super(rdf4j, locales);
         context=rdf4j.context();
+        construct=rdf4j.construct();
+        local=rdf4j.local();
     }
 
 
     CompletableFuture<Boolean> fetch(final URI id) {
 
+        if ( existing.contains(rdf(id)) ) { return completedFuture(true); }
+
         final CompletableFuture<com.metreeca.mesh.Value> subject=fetch(id, SUBJECT);
         final CompletableFuture<com.metreeca.mesh.Value> object=fetch(id, OBJECT);
 
@@ -98,73 +118,261 @@ final class SPARQLFetcher extends _StoreLoader.Worker {
     }
 
     CompletableFuture<com.metreeca.mesh.Value> fetch(final URI id, final Property property) {
-        return property.forward().map(uri -> new Key(rdf(id), rdf(uri), false))
-                .or(() -> property.reverse().map(uri -> new Key(rdf(id), rdf(uri), true)))
+        return step(property).map(step -> new Key(rdf(id), step.predicate(), step.reverse()))
                 .map(key -> edges.computeIfAbsent(key, k -> new CompletableFuture<>()))
                 .orElseGet(() -> completedFuture(Nil()));
     }
 
+    /*
+     * Schedules the speculative retrieval of the edges reachable from a set of anchor resources along the nested
+     * properties of a frame; prefetched edges are retrieved by a single query using property path chains, so that
+     * nested frames are resolved in the same round as their anchors. In CONSTRUCT mode, flat frames are prefetched
+     * as well, so that wide frames are retrieved as statements rather than as tuples.
+     */
+    void prefetch(final Collection<URI> anchors, final Frame frame) {
+        if ( !anchors.isEmpty() && (construct ? !frame.properties().isEmpty() : frame.nested()) ) {
+            prefetches.add(new Prefetch(anchors.stream().map(id -> (Value)rdf(id)).distinct().toList(), frame));
+        }
+    }
+
 
     //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
-    @Override CompletableFuture<Void> run(final RepositoryConnection connection) {
-        return Optional
+    @Override CompletableFuture<Void> run(final _StoreLoader loader) {
 
-                // identify pending edges
+        final Collection<Prefetch> prefetching=snapshot(prefetches);
 
-                .of(edges.entrySet().stream()
-                        .filter((entry -> !entry.getValue().isDone()))
-                        .map(Entry::getKey)
-                        .toList()
-                )
+        final Set<Key> prefetched=prefetching.stream()
+                .flatMap(Prefetch::keys)
+                .collect(toSet());
 
-                .filter(not(List::isEmpty))
+        return allOf(Stream.concat(
 
-                .map(pending -> runAsync(() -> {
+                prefetching.stream().map(prefetch -> async(() -> complete(prefetch, construct
+                        ? match(graph(loader, construct(prefetch)))
+                        : match(query(loader, generate(prefetch)))
+                ))),
 
-                    // collect matching values
+                Optional
 
-                    final TupleQuery query=connection.prepareTupleQuery(generate(pending));
+                        // identify pending edges not covered by prefetches
 
-                    if ( context != null ) {
+                        .of(edges.entrySet().stream()
+                                .filter((entry -> !entry.getValue().isDone()))
+                                .map(Entry::getKey)
+                                .filter(not(prefetched::contains))
+                                .toList()
+                        )
 
-                        final SimpleDataset dataset=new SimpleDataset();
+                        .filter(not(List::isEmpty))
 
-                        dataset.addDefaultGraph(rdf(context));
+                        .map(pending -> async(() -> {
 
-                        query.setDataset(dataset);
+                            // collect matching values
 
-                    }
+                            (local ? lookup(loader, pending) : query(loader, generate(pending))).forEach((key, values) ->
+                                    Optional.ofNullable(edges.get(key))
+                                            .map(future -> future.complete(json(localize(values))))
+                                            .orElseThrow(() -> new AssertionError(format("missing edge <%s>", key)))
+                            );
 
-                    try ( final Stream<BindingSet> tuples=query.evaluate().stream() ) {
+                            // provide empty value set for unmatched keys
 
-                        tuples.collect(groupingBy(
+                            pending.stream()
+                                    .map(edges::get)
+                                    .filter((values -> !values.isDone()))
+                                    .forEach(values -> values.complete(Nil()));
 
-                                tuple -> new Key(
-                                        tuple.getValue("i"),
-                                        (IRI)tuple.getValue("p"),
-                                        tuple.getValue("r").equals(TRUE)
-                                ),
+                        }))
+
+                        .stream()
+
+        ).toArray(CompletableFuture[]::new));
+    }
+
+
+    private Map<Key, Set<Value>> query(final _StoreLoader loader, final String sparql) {
+
+        final Map<Key, Set<Value>> matches=new HashMap<>();
+
+        loader.read(connection -> {
+
+            final TupleQuery query=scope(connection.prepareTupleQuery(sparql));
+
+            try ( final Stream<BindingSet> tuples=loader.evaluate(FETCHER, sparql, query) ) {
+
+                matches.putAll(tuples.collect(groupingBy(
+
+                        tuple -> new Key(
+                                tuple.getValue("i"),
+                                (IRI)tuple.getValue("p"),
+                                tuple.getValue("r").equals(TRUE)
+                        ),
+
+                        mapping(tuple -> tuple.getValue("v"), toSet())
+
+                )));
+
+            }
+
+        });
+
+        return matches;
+    }
+
+    /*
+     * Retrieves pending edges from an embedded repository with direct statement lookups, batched in a single task,
+     * bypassing SPARQL query generation, parsing and optimization for simple triple patterns.
+     */
+    private Map<Key, Set<Value>> lookup(final _StoreLoader loader, final Collection<Key> pending) {
+
+        final Map<Key, Set<Value>> matches=new HashMap<>();
+
+        final Resource[] contexts=context == null ? new Resource[0] : new Resource[]{ rdf(context) };
+
+        loader.read(connection -> {
+
+            try ( final Stream<Entry<Key, Value>> edges=loader.evaluate(FETCHER, () -> pending.stream()
+                    .flatMap(key -> lookup(connection, key, contexts))
+            ) ) {
+
+                edges.forEach(edge -> matches
+                        .computeIfAbsent(edge.getKey(), key -> new HashSet<>())
+                        .add(edge.getValue())
+                );
+
+            }
+
+        });
+
+        return matches;
+    }
+
+    private Stream<Entry<Key, Value>> lookup(
+            final RepositoryConnection connection, final Key key, final Resource... contexts
+    ) {
+
+        final Value resource=key.resource();
+        final IRI predicate=key.predicate();
+
+        if ( predicate.equals(SELF) ) {
+
+            final boolean exists=key.reverse()
+                    ? connection.hasStatement(null, null, resource, true, contexts)
+                    : resource instanceof final Resource subject
+                      && connection.hasStatement(subject, null, null, true, contexts);
+
+            return Stream.of(Map.entry(key, exists ? TRUE : FALSE));
+
+        } else if ( key.reverse() ) {
+
+            return connection.getStatements(null, predicate, resource, true, contexts).stream()
+                    .map(statement -> Map.<Key, Value>entry(key, statement.getSubject()));
+
+        } else if ( resource instanceof final Resource subject ) {
+
+            return connection.getStatements(subject, predicate, null, true, contexts).stream()
+                    .map(Statement::getObject)
+                    .filter(value -> lang(value).map(this::localized).orElse(true))
+                    .map(value -> Map.entry(key, value));
+
+        } else {
+
+            return Stream.empty();
+
+        }
+    }
+
+
+    private Model graph(final _StoreLoader loader, final String sparql) {
+
+        final Model model=new LinkedHashModel(); // indexed by subject, predicate and object
+
+        loader.read(connection -> {
+
+            final GraphQuery query=scope(connection.prepareGraphQuery(sparql));
+
+            try ( final Stream<Statement> statements=loader.evaluate(FETCHER, sparql, query) ) {
+                statements.forEach(model::add);
+            }
+
+        });
+
+        return model;
+    }
+
+    private <T extends Operation> T scope(final T operation) {
+
+        if ( context != null ) {
+
+            final SimpleDataset dataset=new SimpleDataset();
+
+            dataset.addDefaultGraph(rdf(context));
+
+            operation.setDataset(dataset);
+
+        }
+
+        return operation;
+    }
+
+
+    private static Function<Key, Collection<Value>> match(final Map<Key, Set<Value>> matches) {
+        return key -> matches.getOrDefault(key, Set.of());
+    }
+
+    private static Function<Key, Collection<Value>> match(final Model model) {
+        return key -> key.reverse()
+                ? Set.copyOf(model.filter(null, key.predicate(), key.resource()).subjects())
+                : key.resource() instanceof final Resource resource
+                ? Set.copyOf(model.filter(resource, key.predicate(), null).objects())
+                : Set.of();
+    }
+
+    /*
+     * Completes all the edges reachable along the frame of a prefetch, including unmatched ones; nested edges are
+     * completed before their parents, so that nested frames triggered by parent edges find them already resolved.
+     */
+    private void complete(final Prefetch prefetch, final Function<Key, Collection<Value>> matches) {
+
+        final Deque<Entry<Key, com.metreeca.mesh.Value>> completions=new ArrayDeque<>(); // nested edges on top
+
+        complete(prefetch.anchors(), prefetch.frame(), matches, completions);
 
-                                mapping(tuple -> tuple.getValue("v"), toSet())
+        completions.forEach(completion -> edges
+                .computeIfAbsent(completion.getKey(), k -> new CompletableFuture<>())
+                .complete(completion.getValue())
+        );
+    }
+
+    private void complete(
+            final Collection<Value> nodes,
+            final Frame frame,
+            final Function<Key, Collection<Value>> matches,
+            final Deque<Entry<Key, com.metreeca.mesh.Value>> completions
+    ) {
+        frame.properties().forEach((property, nested) -> step(property).ifPresent(step -> {
+
+            final Set<Value> targets=new LinkedHashSet<>();
+
+            for (final Value node : nodes) {
 
-                        )).forEach((key, values) -> Optional.ofNullable(edges.get(key))
-                                .map(future -> future.complete(json(values)))
-                                .orElseThrow(() -> new AssertionError(format("missing edge <%s>", key)))
-                        );
+                final Key key=new Key(node, step.predicate(), step.reverse());
+                final Collection<Value> values=matches.apply(key);
 
-                    }
+                completions.push(Map.entry(key, values.isEmpty() ? Nil() : json(localize(values))));
 
-                    // provide empty value set for unmatched keys
+                values.stream().filter(Value::isResource).forEach(targets::add);
 
-                    pending.stream()
-                            .map(edges::get)
-                            .filter((values -> !values.isDone()))
-                            .forEach(values -> values.complete(Nil()));
+            }
 
-                }))
+            existing.addAll(targets); // reached through a prefetched edge
 
-                .orElseGet(() -> completedFuture(null));
+            if ( !nested.properties().isEmpty() && !targets.isEmpty() ) {
+                complete(targets, nested, matches, completions);
+            }
+
+        }));
     }
 
 
@@ -214,7 +422,8 @@ final class SPARQLFetcher extends _StoreLoader.Worker {
 
                                 forwards.isEmpty() ? nothing() : items(
                                         space(values(vars, forwards)),
-                                        space(edge(var("i"), var("p"), var("v")))
+                                        space(edge(var("i"), var("p"), var("v"))),
+                                        space(localize(var("v")))
                                 ),
 
                                 reverses.isEmpty() ? nothing() : items(
@@ -233,8 +442,181 @@ final class SPARQLFetcher extends _StoreLoader.Worker {
     }
 
 
+    private String generate(final Prefetch prefetch) {
+
+        final List<Coder> branches=new ArrayList<>();
+
+        final List<List<Value>> anchors=prefetch.anchors().stream()
+                .map(anchor -> Collections.list(anchor))
+                .toList();
+
+        branches(anchors, List.of(), prefetch.frame(), var("p"), var("p"), branches);
+
+        final String sparql=sparql(items(
+                select(true, var("i"), var("p"), var("v"), var("r")),
+                where(space(union(branches)))
+        ));
+
+        LOGGER.fine(() -> "# prefetch\n\n%s".formatted(sparql));
+
+        return sparql;
+    }
+
+    /*
+     * Generates a CONSTRUCT query retrieving the edges reachable along a prefetch frame as statements; forward and
+     * reverse branches bind distinct predicate variables, so that each branch instantiates only its own template.
+     */
+    private String construct(final Prefetch prefetch) {
+
+        final List<Coder> branches=new ArrayList<>();
+
+        final List<List<Value>> anchors=prefetch.anchors().stream()
+                .map(anchor -> Collections.list(anchor))
+                .toList();
+
+        branches(anchors, List.of(), prefetch.frame(), var("f"), var("b"), branches);
+
+        final String sparql=sparql(items(
+                construct(block(
+                        space(edge(var("i"), var("f"), var("v"))),
+                        space(edge(var("v"), var("b"), var("i")))
+                )),
+                where(space(union(branches)))
+        ));
+
+        LOGGER.fine(() -> "# construct\n\n%s".formatted(sparql));
+
+        return sparql;
+    }
+
+    /*
+     * Generates a query branch for the forward and reverse properties of each nested frame, focusing on the
+     * resources reached from the anchors along the property path chain leading to the frame.
+     */
+    private void branches(
+            final List<List<Value>> anchors,
+            final List<Coder> path,
+            final Frame frame,
+            final Coder forward,
+            final Coder reverse,
+            final List<Coder> branches
+    ) {
+
+        final Coder focus=path.isEmpty() ? space(values(Collections.list(var("i")), anchors)) : items(
+                space(values(Collections.list(var("a")), anchors)),
+                space(edge(var("a"), list("/", path), var("i")))
+        );
+
+        final List<List<Value>> forwards=frame.properties().keySet().stream()
+                .flatMap(property -> step(property).stream())
+                .filter(not(Step::reverse))
+                .map(step -> Collections.list(step.predicate(), FALSE))
+                .distinct()
+                .toList();
+
+        final List<List<Value>> reverses=frame.properties().keySet().stream()
+                .flatMap(property -> step(property).stream())
+                .filter(Step::reverse)
+                .map(step -> Collections.list(step.predicate(), TRUE))
+                .distinct()
+                .toList();
+
+        if ( !forwards.isEmpty() ) {
+            branches.add(items(
+                    focus,
+                    space(values(Collections.list(forward, var("r")), forwards)),
+                    space(edge(var("i"), forward, var("v"))),
+                    space(localize(var("v")))
+            ));
+        }
+
+        if ( !reverses.isEmpty() ) {
+            branches.add(items(
+                    focus,
+                    space(values(Collections.list(reverse, var("r")), reverses)),
+                    space(edge(var("v"), reverse, var("i")))
+            ));
+        }
+
+        frame.properties().forEach((property, nested) -> step(property)
+                .filter(step -> !nested.properties().isEmpty())
+                .ifPresent(step -> branches(anchors, Collections.list(Stream.concat(path.stream(), Stream.of(step.reverse()
+                        ? items(text("^"), value(step.predicate()))
+                        : value(step.predicate())
+                ))), nested, forward, reverse, branches))
+        );
+    }
+
+
+    /*
+     * Retains tagged literals matching the highest priority language range matched by any of them.
+     */
+    private Collection<Value> localize(final Collection<Value> values) {
+
+        final int best=values.stream()
+                .flatMap(value -> lang(value).stream())
+                .mapToInt(this::rank)
+                .min()
+                .orElse(0);
+
+        return values.stream()
+                .filter(value -> lang(value).map(tag -> rank(tag) == best).orElse(true))
+                .toList();
+    }
+
+    private Optional<String> lang(final Value value) {
+        return value instanceof final Literal literal ? literal.getLanguage() : Optional.empty();
+    }
+
+
+    private static Optional<Step> step(final Property property) {
+        return property.forward().map(uri -> new Step(rdf(uri), false))
+                .or(() -> property.reverse().map(uri -> new Step(rdf(uri), true)));
+    }
+
+
     //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
+    /**
+     * Prefetch frame.
+     *
+     * @param properties the properties to be fetched, mapped to the frames to be fetched for their values
+     */
+    record Frame(Map<Property, Frame> properties) {
+
+        static Frame frame() {
+            return new Frame(Map.of());
+        }
+
+
+        boolean nested() {
+            return properties.values().stream().anyMatch(frame -> !frame.properties.isEmpty());
+        }
+
+        Frame merge(final Frame frame) {
+
+            final Map<Property, Frame> merged=new LinkedHashMap<>(properties);
+
+            frame.properties.forEach((property, nested) -> merged.merge(property, nested, Frame::merge));
+
+            return new Frame(merged);
+        }
+
+    }
+
+
+    private record Prefetch(List<Value> anchors, Frame frame) {
+
+        private Stream<Key> keys() {
+            return frame.properties.keySet().stream()
+                    .flatMap(property -> step(property).stream())
+                    .flatMap(step -> anchors.stream().map(anchor -> new Key(anchor, step.predicate(), step.reverse())));
+        }
+
+    }
+
+    private record Step(IRI predicate, boolean reverse) { }
+
     private record Key(Value resource, IRI predicate, boolean reverse) { // !!! json values
 
         @Override public String toString() {
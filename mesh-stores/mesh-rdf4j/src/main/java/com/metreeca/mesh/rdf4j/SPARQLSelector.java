@@ -19,11 +19,13 @@ package com.metreeca.mesh.rdf4j;
 
 import com.metreeca.mesh.Value;
 import com.metreeca.mesh.queries.*;
+import com.metreeca.mesh.rdf4j._StorePlans.Plan;
 import com.metreeca.mesh.shapes.Property;
 import com.metreeca.mesh.shapes.Type;
 import com.metreeca.shim.Collections;
 
 import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.TupleQuery;
 import org.eclipse.rdf4j.query.impl.SimpleDataset;
@@ -35,7 +37,11 @@ import java.util.Map.Entry;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
 import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static com.metreeca.mesh.Value.Nil;
@@ -43,18 +49,20 @@ import static com.metreeca.mesh.Value.field;
 import static com.metreeca.mesh.queries.Criterion.criterion;
 import static com.metreeca.mesh.queries.Criterion.pattern;
 import static com.metreeca.mesh.rdf4j.Coder.*;
+import static com.metreeca.mesh.rdf4j.RDF4JMetrics.Worker.SELECTOR;
 import static com.metreeca.mesh.rdf4j.SPARQL.*;
 import static com.metreeca.mesh.rdf4j.SPARQLConverter.json;
 import static com.metreeca.mesh.rdf4j.SPARQLConverter.rdf;
 import static com.metreeca.shim.Collections.entry;
 
+import static java.text.Normalizer.Form.NFD;
+import static java.text.Normalizer.normalize;
 import static java.util.Collections.newSetFromMap;
 import static java.util.concurrent.CompletableFuture.allOf;
-import static java.util.concurrent.CompletableFuture.runAsync;
 import static java.util.function.Function.identity;
 import static java.util.function.Predicate.not;
-import static java.util.stream.Collectors.toMap;
-import static java.util.stream.Collectors.toSet;
+import static java.util.stream.Collectors.*;
+import static org.eclipse.rdf4j.model.util.Values.getValueFactory;
 import static org.eclipse.rdf4j.model.vocabulary.RDF.NIL;
 
 final class SPARQLSelector extends _StoreLoader.Worker {
@@ -64,7 +72,19 @@ final class SPARQLSelector extends _StoreLoader.Worker {
     private static final String RDF="http://www.w3.org/1999/02/22-rdf-syntax-ns#";
     private static final String RDFS="http://www.w3.org/2000/01/rdf-schema#";
 
+    private static final String SEARCH="http://www.openrdf.org/contrib/lucenesail#";
+
+    private static final IRI MATCHES=getValueFactory().createIRI(SEARCH, "matches");
+    private static final IRI QUERY=getValueFactory().createIRI(SEARCH, "query");
+    private static final IRI PROPERTY=getValueFactory().createIRI(SEARCH, "property");
+
+    private static final Pattern WORD_PATTERN=Pattern.compile("\\w+");
+    private static final Pattern MARK_PATTERN=Pattern.compile("\\p{M}");
+
     private static final List<IRI> ROOT=Collections.list();
+    private static final Object ANCHOR=new Object();
+
+    private static final String PARAMETERS="#parameters"; // placeholder for the values block binding plan parameters
 
 
     private static Stream<Expression> expressions(final Specs specs) {
@@ -75,10 +95,22 @@ final class SPARQLSelector extends _StoreLoader.Worker {
     //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
     private final URI context;
-
-
-    SPARQLSelector(final RDF4JStore rdf4j) {
-        context=rdf4j.context();
+    private final Set<URI> search;
+    private final _StorePlans plans;
+    private final _StoreHierarchy classes; // null if class constraints are to be evaluated with property paths
+    private final RDF4JLimits limits;
+
+    private final List<Locale> locales;
+
+
+    SPARQLSelector(final RDF4JStore rdf4j, final RDF4JLimits limits, final List<Locale> locales) {
+        super(rdf4j, locales);
+        this.context=rdf4j.context();
+        this.search=rdf4j.search();
+        this.plans=rdf4j.cache();
+        this.classes=rdf4j.hierarchy() ? rdf4j.classes() : null;
+        this.limits=limits;
+        this.locales=locales;
     }
 
 
@@ -111,59 +143,64 @@ final class SPARQLSelector extends _StoreLoader.Worker {
 
     //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
-    @Override CompletableFuture<Void> run(final RepositoryConnection connection) { // !!! batch execution
+    @Override CompletableFuture<Void> run(final _StoreLoader loader) {
         return allOf(Stream
 
                 .concat(
 
-                        snapshot(values).stream().map(task -> runAsync(() -> {
-
-                            final TupleQuery query=connection.prepareTupleQuery(generate(task));
+                        batches(snapshot(values)).map(batch -> async(() -> {
 
-                            if ( context != null ) {
+                            final Plan plan=plan(loader, batch);
+                            final String sparql=render(plan, batch);
 
-                                final SimpleDataset dataset=new SimpleDataset();
+                            loader.read(connection -> {
 
-                                dataset.addDefaultGraph(rdf(context));
+                                final TupleQuery query=prepare(connection, sparql);
 
-                                query.setDataset(dataset);
+                                try ( final Stream<BindingSet> results=loader.evaluate(SELECTOR, sparql, query) ) {
 
-                            }
+                                    complete(batch, plan, results, rows -> rows.stream()
 
-                            try ( final Stream<BindingSet> results=query.evaluate().stream() ) {
+                                            .map(bindings -> json(bindings.getValue(plan.var(ROOT))))
 
-                                task.complete(results.map(bindings ->
+                                            .toList()
 
-                                        json(bindings.getValue(id(ROOT)))
+                                    );
 
-                                ).toList());
+                                }
 
-                            }
+                            });
 
                         })),
 
-                        snapshot(tuples).stream().map(task -> runAsync(() -> {
+                        batches(snapshot(tuples)).map(batch -> async(() -> {
 
-                            try ( final Stream<BindingSet> results=connection.prepareTupleQuery(
+                            final Plan plan=plan(loader, batch);
+                            final String sparql=render(plan, batch);
 
-                                    generate(task)
+                            final List<String> names=names(batch.getFirst().query);
+                            final List<String> localized=localized(batch.getFirst().query);
 
-                            ).evaluate().stream() ) {
+                            loader.read(connection -> {
 
-                                task.complete(results.map(bindings ->
+                                final TupleQuery query=prepare(connection, sparql);
 
-                                        new Tuple(task.query.model().value(Specs.class)
-                                                .map(Specs::columns)
-                                                .orElseGet(List::of)
-                                                .stream()
-                                                .map(Probe::name)
-                                                .map(name -> field(name, json(bindings.getValue(id(name)))))
-                                                .toList()
-                                        )
+                                try ( final Stream<BindingSet> results=loader.evaluate(SELECTOR, sparql, query) ) {
 
-                                ).toList());
+                                    complete(batch, plan, results, rows -> localize(plan, localized, rows).stream()
 
-                            }
+                                            .map(bindings -> new Tuple(names.stream()
+                                                    .map(name -> field(name, json(bindings.getValue(plan.var(name)))))
+                                                    .toList()
+                                            ))
+
+                                            .toList()
+
+                                    );
+
+                                }
+
+                            });
 
                         }))
 
@@ -174,12 +211,175 @@ final class SPARQLSelector extends _StoreLoader.Worker {
     }
 
 
+    /*
+     * Groups tasks differing only in their anchor resource into batches to be executed as a single query.
+     */
+    private <V> Stream<List<Task<V>>> batches(final Collection<Task<V>> tasks) {
+        return tasks.stream()
+                .collect(groupingBy(
+                        task -> batchable(task) ? (Object)new Batch(task.property, task.query) : task,
+                        LinkedHashMap::new,
+                        toList()
+                ))
+                .values()
+                .stream();
+    }
+
+    /*
+     * Retrieves the query plan for a batch, reusing the cached query template generated for tasks differing only in
+     * their anchor resources and in the constant values bound to placeholder variables.
+     */
+    private <V> Plan plan(final _StoreLoader loader, final List<Task<V>> batch) {
+
+        final Task<V> task=batch.getFirst();
+        final Query query=task.query;
+
+        return plans.plan(new Key(
+
+                context, task.virtual, batch.size() > 1, task.property,
+
+                query.model(), template(query.criteria()), query.offset(), limit(task),
+                query.cursor().stream().map(Value::isEmpty).toList(), Set.copyOf(parameters(query).keySet()),
+
+                locales, hierarchy()
+
+        ), () -> generate(loader, batch));
+    }
+
+    /*
+     * Renders a plan template, splicing in a values block binding the placeholder variables of the plan to the anchor
+     * resources of the batch and to the constant values of the query.
+     */
+    private String render(final Plan plan, final List<? extends Task<?>> batch) {
+
+        final Map<Parameter, org.eclipse.rdf4j.model.Value> parameters=parameters(batch.getFirst().query);
+
+        final String values=sparql(SPARQL.values(
+
+                Stream.concat(Stream.of(ANCHOR), parameters.keySet().stream())
+                        .map(element -> var(plan.var(element)))
+                        .toList(),
+
+                batch.stream()
+                        .map(task -> rdf(task.id))
+                        .distinct()
+                        .map(anchor -> Stream.<org.eclipse.rdf4j.model.Value>concat(
+                                Stream.of(anchor), parameters.values().stream()
+                        ).toList())
+                        .toList()
+
+        ));
+
+        final String template=plan.sparql();
+        final int index=template.indexOf(PARAMETERS);
+
+        return template.substring(0, index)+values+template.substring(index+PARAMETERS.length());
+    }
+
+    /*
+     * Identifies the hierarchy snapshot inlined into generated class constraints: {@code -1} if class constraints are
+     * evaluated with property paths, the current generation of the cached class hierarchy otherwise.
+     */
+    private long hierarchy() {
+        return classes == null ? -1 : classes.generation();
+    }
+
+    private TupleQuery prepare(final RepositoryConnection connection, final String sparql) {
+
+        final TupleQuery query=connection.prepareTupleQuery(sparql);
+
+        if ( context != null ) {
+
+            final SimpleDataset dataset=new SimpleDataset();
+
+            dataset.addDefaultGraph(rdf(context));
+
+            query.setDataset(dataset);
+
+        }
+
+        return query;
+    }
+
+    /*
+     * Dispatches query results to batched tasks on the basis of the anchor resource.
+     */
+    private <V> void complete(
+            final List<Task<List<V>>> batch,
+            final Plan plan,
+            final Stream<BindingSet> results,
+            final Function<List<BindingSet>, List<V>> mapper
+    ) {
+        if ( batch.size() == 1 ) {
+
+            batch.getFirst().complete(mapper.apply(results.toList()));
+
+        } else {
+
+            final Map<org.eclipse.rdf4j.model.Value, List<BindingSet>> matches=results.collect(groupingBy(
+                    bindings -> bindings.getValue(plan.var(ANCHOR))
+            ));
+
+            batch.forEach(task -> task.complete(mapper.apply(matches.getOrDefault(rdf(task.id), List.of()))));
+
+        }
+    }
+
+    /*
+     * Retains, for each localized column, only the rows whose tagged literals match the highest priority language
+     * range matched by any row differing only in the value of the column, so that rows aren't multiplied by
+     * language variants matching lower priority ranges.
+     */
+    private List<BindingSet> localize(final Plan plan, final List<String> columns, final List<BindingSet> rows) {
+
+        List<BindingSet> retained=rows;
+
+        for (final String column : columns) {
+
+            final String var=plan.var(column);
+
+            final Function<BindingSet, Map<String, org.eclipse.rdf4j.model.Value>> others=bindings -> {
+
+                final Map<String, org.eclipse.rdf4j.model.Value> values=new HashMap<>();
+
+                bindings.forEach(binding -> {
+                    if ( !binding.getName().equals(var) ) { values.put(binding.getName(), binding.getValue()); }
+                });
+
+                return values;
+            };
+
+            final Map<Map<String, org.eclipse.rdf4j.model.Value>, Integer> best=new HashMap<>();
+
+            retained.forEach(bindings -> lang(bindings.getValue(var)).ifPresent(tag ->
+                    best.merge(others.apply(bindings), rank(tag), Math::min)
+            ));
+
+            retained=best.isEmpty() ? retained : retained.stream()
+                    .filter(bindings -> lang(bindings.getValue(var))
+                            .map(tag -> rank(tag) == best.get(others.apply(bindings)))
+                            .orElse(true)
+                    )
+                    .toList();
+
+        }
+
+        return retained;
+    }
+
+    private Optional<String> lang(final org.eclipse.rdf4j.model.Value value) {
+        return value instanceof final Literal literal ? literal.getLanguage() : Optional.empty();
+    }
+
+
     //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
-    private String generate(final Task<?> task) {
+    private Plan generate(final _StoreLoader loader, final List<? extends Task<?>> batch) {
+
+        final Task<?> task=batch.getFirst();
 
         final boolean virtual=task.virtual;
-        final IRI id=rdf(task.id);
+        final boolean batched=batch.size() > 1;
 
         final Property property=task.property;
         final Optional<URI> forward=property.forward();
@@ -193,7 +393,7 @@ final class SPARQLSelector extends _StoreLoader.Worker {
         final Map<Expression, Criterion> criteria=query.criteria();
 
         final int offset=query.offset();
-        final int limit=query.limit();
+        final int limit=limit(task);
 
         final Map<Expression, Criterion> expressions=Stream
 
@@ -217,14 +417,16 @@ final class SPARQLSelector extends _StoreLoader.Worker {
                 ));
 
 
-        final boolean grouping=expressions.keySet().stream().anyMatch(Expression::isAggregate) && tuple
+        final boolean grouping=expressions.keySet().stream().anyMatch(Expression::isAggregate) && (batched || tuple
                 .map(t -> expressions(t).anyMatch(not(Expression::isAggregate)))
-                .orElse(true);
+                .orElse(true)
+        );
 
 
         final Flake flake=Flake.flake(property.shape(), expressions);
 
         final Coder root=var(id(ROOT));
+        final Coder anchor=var(id(ANCHOR));
 
         final String sparql=sparql(items(
 
@@ -233,28 +435,40 @@ final class SPARQLSelector extends _StoreLoader.Worker {
                         prefix("rdfs", RDFS)
                 ),
 
-                select(tuple.isEmpty(), tuple.map(this::projection).orElse(root)),
+                select(tuple.isEmpty(),
+                        batched ? anchor : nothing(),
+                        tuple.map(this::projection).orElse(root)
+                ),
 
                 space(where(space(
 
                         select(true, star()), where(space( // ;( required to sort on multiple localized values
 
+                                // anchors and constants (spliced in as a values block on execution, as bindings
+                                // don't reach variables hidden by the subselect)
+
+                                space(line(text(PARAMETERS))),
+
                                 // collection membership
 
-                                space(virtual ? nothing() : forward.map(uri -> edge(value(id), iri(rdf(uri)), root))
-                                        .or(() -> reverse.map(uri -> edge(root, iri(rdf(uri)), value(id))))
+                                space(virtual ? nothing() : forward.map(uri -> edge(anchor, iri(rdf(uri)), root))
+                                        .or(() -> reverse.map(uri -> edge(root, iri(rdf(uri)), anchor)))
                                         .orElseGet(Coder::nothing)
                                 ),
 
                                 // type constraint from shape
 
                                 space(property.shape().clazz()
-                                        .map(type -> clazz(var(id(ROOT)), type))
+                                        .map(type -> clazz(loader, var(id(ROOT)), type))
                                         .orElseGet(Coder::nothing)
                                 ),
 
-                                space(flake(Collections.list(), flake)),
-                                space(filters(Collections.list(), flake))
+                                space(flake(Collections.list(), flake, tuple.map(this::localized).orElseGet(Set::of))),
+                                space(filters(Collections.list(), null, flake)),
+
+                                // keyset pagination
+
+                                space(query.cursor().isEmpty() ? nothing() : filter(seek(query)))
 
                         ))
 
@@ -264,7 +478,7 @@ final class SPARQLSelector extends _StoreLoader.Worker {
 
                 space(grouping ?
 
-                        groupBy(tuple
+                        groupBy(batched ? anchor : nothing(), tuple
                                 .map(t -> items(t.columns().stream()
                                         .map(Probe::expression)
                                         .filter(not(Expression::isAggregate))
@@ -324,13 +538,76 @@ final class SPARQLSelector extends _StoreLoader.Worker {
 
         LOGGER.fine(() -> "# select\n\n%s".formatted(sparql));
 
-        return sparql;
+        final Map<Object, String> vars=new HashMap<>();
+
+        vars.put(ROOT, id(ROOT));
+        vars.put(ANCHOR, id(ANCHOR));
+
+        names(query).forEach(name -> vars.put(name, id(name)));
+        parameters(query).keySet().forEach(parameter -> vars.put(parameter, id(parameter)));
+
+        return new Plan(sparql, vars);
+    }
+
+    /*
+     * Checks if a task may be merged with tasks differing only in their anchor resource: a slice limit would apply to
+     * the whole result set of a batched query rather than to the items of each anchor, so tasks are batched only if
+     * no page size is configured and each anchor is otherwise retrieved with its own paged query.
+     */
+    private boolean batchable(final Task<?> task) {
+        return task.batchable() && page(0) == 0;
+    }
+
+    /*
+     * Computes the effective slice limit of a task.
+     */
+    private int limit(final Task<?> task) {
+        return batchable(task) ? task.query.limit() : page(task.query.limit());
+    }
+
+    /*
+     * Applies the configured page sizes to a query limit.
+     */
+    private int page(final int limit) {
+
+        final int page=limits.page();
+        final int max=limits.max();
+
+        return limit == 0 ? (page == 0 ? max : page)
+                : max == 0 ? limit
+                : Math.min(limit, max);
+    }
+
+    /*
+     * Identifies the columns projecting plain paths, whose localized values are restricted to the preferred locales.
+     */
+    private List<String> localized(final Query query) {
+        return query.model().value(Specs.class)
+                .map(Specs::columns)
+                .orElseGet(List::of)
+                .stream()
+                .filter(probe -> plain(probe.expression()))
+                .map(Probe::name)
+                .toList();
+    }
+
+    private List<String> names(final Query query) {
+        return query.model().value(Specs.class)
+                .map(Specs::columns)
+                .orElseGet(List::of)
+                .stream()
+                .map(Probe::name)
+                .toList();
     }
 
 
     //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
-    private Coder flake(final List<String> path, final Flake flake) {
+    /*
+     * Generates graph patterns for a flake, restricting the values of localized paths to the preferred locales inside
+     * their optional group, so that unmatched values leave the path unbound rather than dropping the whole row.
+     */
+    private Coder flake(final List<String> path, final Flake flake, final Set<List<String>> localized) {
         return items(flake.flakes().entrySet().stream()
 
                 .map(f -> {
@@ -353,7 +630,9 @@ final class SPARQLSelector extends _StoreLoader.Worker {
                                     .orElseGet(Coder::nothing)
                             ),
 
-                            space(flake(next, child)) // !!!
+                            space(localized.contains(next) ? localize(target) : nothing()),
+
+                            space(flake(next, child, localized)) // !!!
 
                     );
 
@@ -365,7 +644,7 @@ final class SPARQLSelector extends _StoreLoader.Worker {
         );
     }
 
-    private Coder filters(final List<String> path, final Flake flake) {
+    private Coder filters(final List<String> path, final Property property, final Flake flake) {
         return items(
 
                 items(flake.criteria().entrySet().stream()
@@ -377,9 +656,21 @@ final class SPARQLSelector extends _StoreLoader.Worker {
 
                             final Coder value=transform(path, pipe);
 
-                            return !criterion.isFilter() || pipe.stream().anyMatch(Transform::isAggregate)
-                                    ? nothing()
-                                    : space(filter(constraint(value, criterion)));
+                            final Optional<Coder> search=pipe.isEmpty()
+                                    ? criterion.like().flatMap(keywords -> search(path, property, keywords))
+                                    : Optional.empty();
+
+                            final Criterion residual=search.isPresent() ? criterion.like("") : criterion;
+
+                            return items(
+
+                                    space(search.orElseGet(Coder::nothing)),
+
+                                    !residual.isFilter() || pipe.stream().anyMatch(Transform::isAggregate)
+                                            ? nothing()
+                                            : space(filter(constraint(value, path, pipe, residual)))
+
+                            );
 
                         })
 
@@ -392,10 +683,10 @@ final class SPARQLSelector extends _StoreLoader.Worker {
 
                             final Flake child=f.getValue();
 
-                            final Property property=f.getKey();
-                            final List<String> next=Stream.concat(path.stream(), Stream.of(property.name())).toList();
+                            final Property nested=f.getKey();
+                            final List<String> next=Stream.concat(path.stream(), Stream.of(nested.name())).toList();
 
-                            return space(filters(next, child));
+                            return space(filters(next, nested, child));
 
                         })
 
@@ -405,9 +696,57 @@ final class SPARQLSelector extends _StoreLoader.Worker {
         );
     }
 
+    /*
+     * Generates a full-text index lookup matching the subjects of indexed forward properties, if the index is
+     * configured and the keywords include at least a word.
+     */
+    private Optional<Coder> search(final List<String> path, final Property property, final String keywords) {
+        return Optional.ofNullable(property)
+                .flatMap(Property::forward)
+                .filter(search::contains)
+                .flatMap(uri -> {
+
+                    final String normalized=MARK_PATTERN.matcher(normalize(keywords, NFD)).replaceAll("");
+
+                    final String query=WORD_PATTERN.matcher(normalized).results()
+                            .map(word -> "+%s*".formatted(word.group().toLowerCase(Locale.ROOT)))
+                            .collect(joining(" "));
+
+                    if ( query.isEmpty() ) { return Optional.empty(); } else {
+
+                        final Coder subject=var(id(path.subList(0, path.size()-1)));
+                        final Coder match=var(id(new Match(path)));
+
+                        return Optional.of(items(
+                                edge(subject, iri(MATCHES), match),
+                                edge(match, iri(QUERY), value(rdf(Value.string(query)).findFirst().orElseThrow())),
+                                edge(match, iri(PROPERTY), iri(rdf(uri)))
+                        ));
+
+                    }
+
+                });
+    }
+
 
     //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
+    /*
+     * Identifies the paths projected by plain path columns, whose values are restricted to the preferred locales, so
+     * that rows aren't multiplied by unwanted language variants.
+     */
+    private Set<List<String>> localized(final Specs specs) {
+        return specs.columns().stream()
+                .map(Probe::expression)
+                .filter(SPARQLSelector::plain)
+                .map(Expression::path)
+                .collect(toSet());
+    }
+
+    private static boolean plain(final Expression expression) {
+        return expression.pipe().isEmpty() && !expression.path().isEmpty();
+    }
+
     private Coder projection(final Specs specs) {
         return specs.columns().isEmpty() ? star() : items(specs.columns().stream()
                 .map(probe -> {
@@ -503,6 +842,70 @@ final class SPARQLSelector extends _StoreLoader.Worker {
     }
 
 
+    /*
+     * Matches items following the cursor in the sort order of the query, that is items where, for some sort key,
+     * all the preceding keys are equal to the cursor values and the key itself follows the cursor value.
+     */
+    private Coder seek(final Query query) {
+
+        final List<Expression> keys=query.keys();
+        final List<Value> cursor=query.cursor();
+
+        final List<Coder> alternatives=new ArrayList<>();
+
+        for (int i=0; i < keys.size(); ++i) {
+
+            final Expression key=keys.get(i);
+
+            final boolean decreasing=Optional.ofNullable(query.criteria().get(key))
+                    .flatMap(Criterion::order)
+                    .map(order -> order < 0)
+                    .orElse(false);
+
+            final Value last=cursor.get(i);
+
+            if ( !(decreasing && last.isEmpty()) ) { // unbound values sort last in decreasing order
+
+                final List<Coder> terms=new ArrayList<>();
+
+                for (int j=0; j < i; ++j) {
+                    terms.add(same(sortable(expression(keys.get(j))), keys.get(j), cursor.get(j)));
+                }
+
+                terms.add(follows(sortable(expression(key)), key, last, decreasing));
+
+                alternatives.add(parens(and(terms)));
+
+            }
+
+        }
+
+        return alternatives.isEmpty() ? text("false") : or(alternatives);
+    }
+
+    private Coder sortable(final Coder value) { // compare IRIs and tagged literals as plain strings
+        return test(
+                or(isIRI(value), and(isLiteral(value), langMatches(lang(value), text("'*'")))),
+                str(value),
+                value
+        );
+    }
+
+    private Coder same(final Coder value, final Expression key, final Value last) {
+        return last.isEmpty() ? nt(bound(value)) : eq(value, cursor(key));
+    }
+
+    private Coder follows(final Coder value, final Expression key, final Value last, final boolean decreasing) {
+        return decreasing ? parens(or(SPARQL.lt(value, cursor(key)), nt(bound(value))))
+                : last.isEmpty() ? bound(value)
+                : SPARQL.gt(value, cursor(key));
+    }
+
+    private Coder cursor(final Expression key) {
+        return parameter(key.path(), key.pipe(), Operator.CURSOR, 0);
+    }
+
+
     //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
     private Coder expression(final Expression expression) {
@@ -538,8 +941,25 @@ final class SPARQLSelector extends _StoreLoader.Worker {
 
     //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
-    private Coder clazz(final Coder value, final Type type) {
-        return edge(value, text("rdf:type/rdfs:subClassOf*"), iri(rdf(type.uri())));
+    private Coder clazz(final _StoreLoader loader, final Coder value, final Type type) {
+        if ( classes == null ) {
+
+            return edge(value, text("rdf:type/rdfs:subClassOf*"), iri(rdf(type.uri())));
+
+        } else {
+
+            final Coder clazz=var(id(type));
+
+            return items(
+                    space(SPARQL.values(Collections.list(clazz), classes.subclasses(loader, context, rdf(type.uri()))
+                            .stream()
+                            .map(subclass -> List.<org.eclipse.rdf4j.model.Value>of(subclass))
+                            .toList()
+                    )),
+                    space(edge(value, text("rdf:type"), clazz))
+            );
+
+        }
     }
 
     private Coder constraint(final Coder value, final Criterion criterion) {
@@ -554,7 +974,55 @@ final class SPARQLSelector extends _StoreLoader.Worker {
                         criterion.gte().map(limit -> gte(value, limit)).stream(),
 
                         criterion.like().stream().map(keywords -> like(value, keywords)),
-                        criterion.any().stream().map(options -> any(value, options))
+                        criterion.any().stream().map(options -> {
+
+                            final List<org.eclipse.rdf4j.model.Value> values=options(options);
+
+                            return any(value, options, index -> value(values.get(index)));
+
+                        })
+
+                )
+
+                .flatMap(identity())
+
+                .toList()
+        );
+    }
+
+    /*
+     * Generates a constraint on a non-aggregate expression, referring to its constant values through the placeholder
+     * variables bound on execution; full-text keywords are inlined if a full-text index is configured, as they may be
+     * pushed down to index lookups, which require constant queries.
+     */
+    private Coder constraint(
+            final Coder value,
+            final List<String> path,
+            final List<Transform> pipe,
+            final Criterion criterion
+    ) {
+        return and(Stream.
+
+                of(
+
+                        criterion.lt().map(limit -> SPARQL.lt(value, parameter(path, pipe, Operator.LT, 0)))
+                                .stream(),
+                        criterion.gt().map(limit -> SPARQL.gt(value, parameter(path, pipe, Operator.GT, 0)))
+                                .stream(),
+
+                        criterion.lte().map(limit -> SPARQL.lte(value, parameter(path, pipe, Operator.LTE, 0)))
+                                .stream(),
+                        criterion.gte().map(limit -> SPARQL.gte(value, parameter(path, pipe, Operator.GTE, 0)))
+                                .stream(),
+
+                        criterion.like().stream().map(keywords -> search.isEmpty()
+                                ? regex(str(value), parameter(path, pipe, Operator.LIKE, 0))
+                                : like(value, keywords)
+                        ),
+
+                        criterion.any().stream().map(options ->
+                                any(value, options, index -> parameter(path, pipe, Operator.ANY, index))
+                        )
 
                 )
 
@@ -587,29 +1055,138 @@ final class SPARQLSelector extends _StoreLoader.Worker {
         return regex(str(value), quoted(pattern(keywords, true)));
     }
 
-    private Coder any(final Coder value, final Collection<Value> values) {
+    private Coder any(final Coder value, final Collection<Value> values, final IntFunction<Coder> option) {
         if ( values.isEmpty() ) {
 
             return bound(value);
 
         } else {
 
-            final Set<Value> options=values.stream()
-                    .filter(not(v -> v.equals(Nil())))
-                    .collect(toSet());
+            final int options=options(values).size();
 
             final Coder negative=nt(bound(value));
-            final Coder positive=options.size() == 1
-                    ? eq(value, value(options.stream().flatMap(SPARQLConverter::rdf).findFirst().orElse(NIL)))
-                    : in(value, options.stream().flatMap(SPARQLConverter::rdf).map(SPARQL::value).toList());
+            final Coder positive=options == 1
+                    ? eq(value, option.apply(0))
+                    : in(value, IntStream.range(0, options).mapToObj(option).toList());
 
             return values.stream().noneMatch(v -> v.equals(Nil())) ? positive
-                    : options.isEmpty() ? negative
+                    : options == 0 ? negative
                     : parens(or(negative, positive));
 
         }
     }
 
+    /*
+     * Converts the non-nil options of an {@code any} criterion to RDF values.
+     */
+    private static List<org.eclipse.rdf4j.model.Value> options(final Collection<Value> values) {
+        return values.stream()
+                .filter(not(v -> v.equals(Nil())))
+                .flatMap(SPARQLConverter::rdf)
+                .distinct()
+                .toList();
+    }
+
+
+    //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private Coder parameter(
+            final List<String> path, final List<Transform> pipe, final Operator operator, final int index
+    ) {
+        return var(id(new Parameter(path, pipe, operator, index)));
+    }
+
+    /*
+     * Collects the constant values of a query bound to the placeholder variables of its plan, that is the filter
+     * constants of non-aggregate expressions and the cursor values; aggregate filters and focus values are inlined,
+     * as they are evaluated outside the subselect binding placeholder variables.
+     */
+    private Map<Parameter, org.eclipse.rdf4j.model.Value> parameters(final Query query) {
+
+        final Map<Parameter, org.eclipse.rdf4j.model.Value> parameters=new LinkedHashMap<>();
+
+        query.criteria().forEach((expression, criterion) -> {
+            if ( !expression.isAggregate() ) {
+
+                final List<String> path=expression.path();
+                final List<Transform> pipe=expression.pipe();
+
+                criterion.lt().ifPresent(limit ->
+                        parameters.put(new Parameter(path, pipe, Operator.LT, 0), constant(limit))
+                );
+                criterion.gt().ifPresent(limit ->
+                        parameters.put(new Parameter(path, pipe, Operator.GT, 0), constant(limit))
+                );
+
+                criterion.lte().ifPresent(limit ->
+                        parameters.put(new Parameter(path, pipe, Operator.LTE, 0), constant(limit))
+                );
+                criterion.gte().ifPresent(limit ->
+                        parameters.put(new Parameter(path, pipe, Operator.GTE, 0), constant(limit))
+                );
+
+                criterion.like().filter(keywords -> search.isEmpty()).ifPresent(keywords -> parameters.put(
+                        new Parameter(path, pipe, Operator.LIKE, 0),
+                        getValueFactory().createLiteral(pattern(keywords, true))
+                ));
+
+                criterion.any().map(SPARQLSelector::options).ifPresent(options -> {
+                    for (int index=0; index < options.size(); ++index) {
+                        parameters.put(new Parameter(path, pipe, Operator.ANY, index), options.get(index));
+                    }
+                });
+
+            }
+        });
+
+        final List<Expression> keys=query.keys();
+        final List<Value> cursor=query.cursor();
+
+        for (int i=0; i < cursor.size(); ++i) {
+
+            final Expression key=keys.get(i);
+            final Value last=cursor.get(i);
+
+            if ( !last.isEmpty() ) { // compare IRIs and tagged literals as plain strings
+                parameters.put(new Parameter(key.path(), key.pipe(), Operator.CURSOR, 0), constant(last.uri()
+                        .map(uri -> Value.string(uri.toString()))
+                        .or(() -> last.text().map(text -> Value.string(text.getValue())))
+                        .orElse(last)
+                ));
+            }
+
+        }
+
+        return parameters;
+    }
+
+    private static org.eclipse.rdf4j.model.Value constant(final Value value) {
+        return rdf(value).findFirst().orElse(NIL);
+    }
+
+    /*
+     * Strips the constant values bound to placeholder variables from query criteria, retaining only the features
+     * affecting the structure of generated queries.
+     */
+    private Map<Expression, Criterion> template(final Map<Expression, Criterion> criteria) {
+        return criteria.entrySet().stream().collect(toMap(Entry::getKey, entry -> {
+
+            final Criterion criterion=entry.getValue();
+
+            return entry.getKey().isAggregate() ? criterion : new Criterion(
+
+                    criterion.order(), criterion.focus(),
+
+                    Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(),
+
+                    search.isEmpty() ? Optional.empty() : criterion.like(),
+                    criterion.any().map(values -> values.stream().filter(v -> v.equals(Nil())).collect(toSet()))
+
+            );
+
+        }));
+    }
+
 
     //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
@@ -637,6 +1214,23 @@ final class SPARQLSelector extends _StoreLoader.Worker {
         }
 
 
+        /*
+         * Checks if the task may be merged with tasks differing only in their anchor resource, regardless of the
+         * configured page sizes: slicing and seeking apply to the whole result set of a batched query and can't be
+         * distributed among anchors; aggregate-only tables yield a single record even for anchors with no matches,
+         * which grouping by anchor would drop.
+         */
+        private boolean batchable() {
+            return !virtual
+                   && query.offset() == 0
+                   && query.limit() == 0
+                   && query.cursor().isEmpty()
+                   && query.model().value(Specs.class).map(specs -> !specs.columns().isEmpty()
+                                                                    && expressions(specs).anyMatch(not(Expression::isAggregate))
+                   ).orElse(true);
+        }
+
+
         private CompletableFuture<V> schedule(final Consumer<Task<V>> queue) {
 
             queue.accept(this);
@@ -650,4 +1244,30 @@ final class SPARQLSelector extends _StoreLoader.Worker {
 
     }
 
+
+    private enum Operator { LT, GT, LTE, GTE, LIKE, ANY, CURSOR }
+
+
+    private record Match(List<String> path) { }
+
+    private record Parameter(List<String> path, List<Transform> pipe, Operator operator, int index) { }
+
+    private record Batch(Property property, Query query) { }
+
+    /*
+     * Identifies cached query plans by the shape of the originating tasks, excluding anchor resources and constant
+     * values bound to placeholder variables; plans are shared by stores derived through functional setters, so keys
+     * include the graph context and the hierarchy mode, which affect the generated query text.
+     */
+    private record Key(
+
+            URI context, boolean virtual, boolean batched, Property property,
+
+            Value model, Map<Expression, Criterion> criteria, int offset, int limit,
+            List<Boolean> cursor, Set<Parameter> parameters,
+
+            List<Locale> locales, long hierarchy
+
+    ) { }
+
 }
@@ -18,53 +18,76 @@ package com.metreeca.mesh.rdf4j;
 
 import com.metreeca.mesh.shapes.Property;
 import com.metreeca.mesh.shapes.Type;
+import com.metreeca.shim.Collections;
 import com.metreeca.shim.Futures;
 
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.RDF4J;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.TupleQuery;
+import org.eclipse.rdf4j.query.impl.SimpleDataset;
 import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.RepositoryResult;
 
 import java.net.URI;
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.Optional;
-import java.util.Set;
+import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 import java.util.logging.Logger;
 import java.util.stream.Stream;
 
+import static com.metreeca.mesh.rdf4j.Coder.*;
+import static com.metreeca.mesh.rdf4j.SPARQL.*;
 import static com.metreeca.mesh.rdf4j.SPARQLConverter.rdf;
 
 import static java.lang.String.format;
+import static java.util.Collections.newSetFromMap;
 import static java.util.concurrent.CompletableFuture.allOf;
 import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.function.Predicate.not;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toSet;
+import static org.eclipse.rdf4j.model.util.Values.getValueFactory;
 
 final class SPARQLUpdater extends _StoreLoader.Worker {
 
     private static final Logger LOGGER=Logger.getLogger(SPARQLUpdater.class.getName());
 
+    private static final Value FALSE=getValueFactory().createLiteral(false);
+    private static final Value TRUE=getValueFactory().createLiteral(true);
+
 
     //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
     private final URI context;
+    private final int batch;
+    private final boolean local;
+    private final _StoreTally tally;
 
-    private final Collection<Task> inserts=new HashSet<>();
-    private final Collection<Task> deletes=new HashSet<>();
+    private final Collection<Task> inserts=newSetFromMap(new ConcurrentHashMap<>());
+    private final Collection<Task> deletes=newSetFromMap(new ConcurrentHashMap<>());
+    private final Collection<Delta> updates=newSetFromMap(new ConcurrentHashMap<>());
 
 
     SPARQLUpdater(final RDF4JStore rdf4j) {
+        super(rdf4j);
         context=rdf4j.context();
+        batch=rdf4j.batch();
+        local=rdf4j.local();
+        tally=rdf4j.tally();
     }
 
 
     CompletableFuture<Void> insert(final URI id, final Set<Type> types) {
-        return Futures.allOf(Stream.concat(
-                Stream.of(new Task(rdf(id), RDF.TYPE, null).schedule(deletes::add)),
-                types.stream().map(type -> new Task(rdf(id), RDF.TYPE, rdf(type.uri())).schedule(inserts::add))
-        ));
+        return new Delta(rdf(id), RDF.TYPE, false, types.stream()
+                .map(type -> (Value)rdf(type.uri()))
+                .collect(toSet())
+        ).schedule(updates::add);
     }
 
 
@@ -90,6 +113,28 @@ final class SPARQLUpdater extends _StoreLoader.Worker {
         );
     }
 
+    /*
+     * Replaces the values of a property, writing only the statements differing from the stored state.
+     */
+    CompletableFuture<Void> update(final URI id, final Property property, final com.metreeca.mesh.Value value) {
+
+        final Set<Value> values=rdf(value).collect(toSet());
+
+        return allOf(Stream.<Optional<CompletableFuture<Void>>>of(
+                                property.forward().map(f -> new Delta(rdf(id), rdf(f), false, values)
+                                        .schedule(updates::add)
+                                ),
+                                property.reverse().map(r -> new Delta(rdf(id), rdf(r), true, values.stream()
+                                        .filter(Value::isResource)
+                                        .collect(toSet())
+                                ).schedule(updates::add)),
+                                Optional.empty()
+                        )
+                        .flatMap(Optional::stream)
+                        .toArray(CompletableFuture[]::new)
+        );
+    }
+
     CompletableFuture<Void> remove(final URI id, final Property property) {
         return allOf(Stream.<Optional<CompletableFuture<Void>>>of(
                                 property.forward().map(f -> new Task(rdf(id), rdf(f), null).schedule(deletes::add)),
@@ -102,12 +147,26 @@ final class SPARQLUpdater extends _StoreLoader.Worker {
     }
 
 
-    @Override CompletableFuture<Void> run(final RepositoryConnection connection) {
-        if ( inserts.isEmpty() && deletes.isEmpty() ) { return completedFuture(null); } else {
+    @Override CompletableFuture<Void> run(final _StoreLoader loader) {
+        if ( inserts.isEmpty() && deletes.isEmpty() && updates.isEmpty() ) { return completedFuture(null); } else {
+
+            return async(() -> loader.write(connection -> {
+
+                final _StoreEvents.Update event=new _StoreEvents.Update();
+
+                event.begin();
+
+                final long start=System.nanoTime();
 
-            return CompletableFuture.runAsync(() -> {
+                final Resource graph=context == null ? null : rdf(context);
 
-                snapshot(deletes).forEach(delete -> {
+                final Collection<Task> removals=snapshot(deletes);
+                final Collection<Task> insertions=snapshot(inserts);
+                final Collection<Delta> deltas=snapshot(updates);
+
+                // wildcard patterns are removed one by one
+
+                removals.stream().filter(not(Task::concrete)).forEach(delete -> {
 
                     final Resource resource=delete.resource;
                     final IRI predicate=delete.predicate;
@@ -117,11 +176,11 @@ final class SPARQLUpdater extends _StoreLoader.Worker {
 
                     if ( resource == null && predicate == null && value == null ) {
 
-                        connection.clear(context == null ? null : rdf(context));
+                        connection.clear(graph);
 
                     } else {
 
-                        connection.remove(resource, predicate, value, context == null ? null : rdf(context));
+                        connection.remove(resource, predicate, value, graph);
 
                     }
 
@@ -129,28 +188,259 @@ final class SPARQLUpdater extends _StoreLoader.Worker {
 
                 });
 
-                snapshot(inserts).forEach(insert -> {
+                // updated values are diffed against the stored state, after wildcard removals
 
-                    final Resource resource=insert.resource;
-                    final IRI predicate=insert.predicate;
-                    final Value value=insert.value;
+                final List<Task> retractions=new ArrayList<>();
+                final List<Task> assertions=new ArrayList<>();
 
-                    LOGGER.fine(() -> format("+ %s %s %s (%s)", resource, predicate, value, context));
+                int retained=0;
 
-                    connection.add(resource, predicate, value, context == null ? null : rdf(context));
+                final Map<Delta, Set<Value>> state=stored(connection, graph, deltas);
 
-                    insert.complete();
+                for (final Delta delta : deltas) {
 
-                });
+                    final Set<Value> stored=state.getOrDefault(delta, Set.of());
+
+                    for (final Value value : stored) {
+                        if ( delta.values.contains(value) ) { ++retained; } else { retractions.add(delta.task(value)); }
+                    }
+
+                    for (final Value value : delta.values) {
+                        if ( !stored.contains(value) ) { assertions.add(delta.task(value)); }
+                    }
+
+                }
+
+                // concrete statements are removed/added in bulk
+
+                final int removed=flush(
+                        Stream.concat(removals.stream().filter(Task::concrete), retractions.stream()), "-",
+                        statements -> connection.remove(statements, graph)
+                );
+
+                final int added=flush(
+                        Stream.concat(insertions.stream(), assertions.stream()), "+",
+                        statements -> connection.add(statements, graph)
+                );
+
+                deltas.forEach(Delta::complete);
+
+                tally.record(assertions.size(), retractions.size(), retained);
+
+                loader.updated(removed+added, System.nanoTime()-start);
+                event.commit(removed+added);
+
+            }));
+
+        }
+    }
+
+
+    /*
+     * Retrieves the stored values of updated properties: values are retrieved with direct statement lookups from
+     * embedded repositories and with a single query for each batch of properties otherwise, so that remote
+     * repositories aren't hit by a round trip for each updated property.
+     */
+    private Map<Delta, Set<Value>> stored(
+            final RepositoryConnection connection, final Resource graph, final Collection<Delta> deltas
+    ) {
+
+        final Map<Delta, Set<Value>> stored=new HashMap<>();
+
+        if ( local ) {
+
+            deltas.forEach(delta -> stored.put(delta, delta.stored(connection, graph)));
+
+        } else {
+
+            final List<Delta> chunk=new ArrayList<>();
+
+            for (final Iterator<Delta> iterator=deltas.iterator(); iterator.hasNext(); ) {
+
+                chunk.add(iterator.next());
+
+                if ( chunk.size() >= batch || !iterator.hasNext() ) {
+                    stored.putAll(query(connection, graph, chunk));
+                    chunk.clear();
+                }
+
+            }
+
+        }
+
+        return stored;
+    }
+
+    private Map<Delta, Set<Value>> query(
+            final RepositoryConnection connection, final Resource graph, final List<Delta> deltas
+    ) {
+
+        final Map<List<Value>, List<Delta>> keys=deltas.stream().collect(groupingBy(Delta::key));
+
+        final List<Coder> vars=Collections.list(var("i"), var("p"), var("r"));
+
+        final List<List<Value>> forwards=keys.keySet().stream()
+                .filter(key -> key.get(2).equals(FALSE))
+                .toList();
+
+        final List<List<Value>> reverses=keys.keySet().stream()
+                .filter(key -> key.get(2).equals(TRUE))
+                .toList();
+
+        final String sparql=sparql(items(
+                select(var("i"), var("p"), var("r"), var("v")),
+                where(
+
+                        space(union(
+
+                                forwards.isEmpty() ? nothing() : items(
+                                        space(values(vars, forwards)),
+                                        space(edge(var("i"), var("p"), var("v")))
+                                ),
+
+                                reverses.isEmpty() ? nothing() : items(
+                                        space(values(vars, reverses)),
+                                        space(edge(var("v"), var("p"), var("i")))
+                                )
+
+                        ))
+
+                )
+        ));
+
+        LOGGER.fine(() -> "# stored\n\n%s".formatted(sparql));
+
+        final TupleQuery query=connection.prepareTupleQuery(sparql);
+        final SimpleDataset dataset=new SimpleDataset();
+
+        dataset.addDefaultGraph(graph == null ? RDF4J.NIL : graph); // match statements in the target graph only
+        query.setDataset(dataset);
+
+        final Map<Delta, Set<Value>> stored=new HashMap<>();
+
+        try ( final Stream<BindingSet> tuples=query.evaluate().stream() ) {
+
+            tuples.forEach(tuple -> {
+
+                final List<Value> key=Collections.list(tuple.getValue("i"), tuple.getValue("p"), tuple.getValue("r"));
+
+                keys.getOrDefault(key, List.of()).forEach(delta -> stored
+                        .computeIfAbsent(delta, d -> new HashSet<>())
+                        .add(tuple.getValue("v"))
+                );
 
             });
 
         }
+
+        return stored;
+    }
+
+
+    /*
+     * Flushes concrete statements in batches, returning the number of flushed statements.
+     */
+    private int flush(final Stream<Task> tasks, final String operation, final Consumer<List<Statement>> sink) {
+
+        final List<Task> chunk=new ArrayList<>();
+
+        int count=0;
+
+        for (final Iterator<Task> iterator=tasks.iterator(); iterator.hasNext(); ) {
+
+            chunk.add(iterator.next());
+
+            if ( chunk.size() >= batch ) {
+                count+=flush(chunk, operation, sink);
+            }
+
+        }
+
+        if ( !chunk.isEmpty() ) {
+            count+=flush(chunk, operation, sink);
+        }
+
+        return count;
+    }
+
+    private int flush(final List<Task> chunk, final String operation, final Consumer<List<Statement>> sink) {
+
+        final List<Statement> statements=chunk.stream()
+                .peek(task -> LOGGER.fine(() -> format("%s %s %s %s (%s)",
+                        operation, task.resource, task.predicate, task.value, context
+                )))
+                .map(task -> getValueFactory().createStatement(task.resource, task.predicate, task.value))
+                .toList();
+
+        sink.accept(statements);
+
+        chunk.forEach(Task::complete);
+        chunk.clear();
+
+        return statements.size();
     }
 
 
     //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
+    private static final class Delta {
+
+        final Resource resource;
+        final IRI predicate;
+        final boolean reverse;
+        final Set<Value> values;
+
+        private final CompletableFuture<Void> future=new CompletableFuture<>();
+
+
+        private Delta(final Resource resource, final IRI predicate, final boolean reverse, final Set<Value> values) {
+            this.resource=resource;
+            this.predicate=predicate;
+            this.reverse=reverse;
+            this.values=values;
+        }
+
+
+        private List<Value> key() {
+            return Collections.list(resource, predicate, reverse ? TRUE : FALSE);
+        }
+
+        private Set<Value> stored(final RepositoryConnection connection, final Resource graph) {
+
+            final Set<Value> stored=new HashSet<>();
+
+            try ( final RepositoryResult<Statement> statements=reverse
+                    ? connection.getStatements(null, predicate, resource, false, graph)
+                    : connection.getStatements(resource, predicate, null, false, graph)
+            ) {
+
+                statements.forEach(statement -> stored.add(reverse ? statement.getSubject() : statement.getObject()));
+
+            }
+
+            return stored;
+        }
+
+        private Task task(final Value value) {
+            return reverse
+                    ? new Task((Resource)value, predicate, resource)
+                    : new Task(resource, predicate, value);
+        }
+
+
+        private CompletableFuture<Void> schedule(final Consumer<Delta> queue) {
+
+            queue.accept(this);
+
+            return future;
+        }
+
+        private void complete() {
+            future.complete(null);
+        }
+
+    }
+
     private static final class Task {
 
         final Resource resource;
@@ -167,6 +457,11 @@ final class SPARQLUpdater extends _StoreLoader.Worker {
         }
 
 
+        private boolean concrete() {
+            return resource != null && predicate != null && value != null;
+        }
+
+
         private CompletableFuture<Void> schedule(final Consumer<Task> queue) {
 
             queue.accept(this);
@@ -0,0 +1,137 @@
+/*
+ * Copyright © 2022-2025 Metreeca srl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.metreeca.mesh.rdf4j;
+
+import jdk.jfr.*;
+
+import java.net.URI;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Store flight recorder events.
+ *
+ * <p>Records store operations and the SPARQL queries and updates they issue; event details are collected only if
+ * the relevant event is enabled in the active recording.</p>
+ */
+final class _StoreEvents {
+
+    @Name("com.metreeca.mesh.rdf4j.Operation")
+    @Label("Store Operation")
+    @Description("Store operation executed by an RDF4J store")
+    @Category({ "Metreeca Mesh", "RDF4J Store" })
+    @StackTrace(false)
+    static final class Operation extends Event {
+
+        @Label("Context")
+        String context;
+
+        @Label("Rounds")
+        int rounds;
+
+        @Label("Queries")
+        long queries;
+
+        @Label("Rows")
+        long rows;
+
+        @Label("Statements")
+        long statements;
+
+
+        void commit(final URI context, final RDF4JMetrics.Stats stats) {
+            if ( shouldCommit() ) {
+
+                this.context=context == null ? null : context.toString();
+                this.rounds=stats.rounds();
+                this.queries=stats.selections()+stats.fetches();
+                this.rows=stats.rows();
+                this.statements=stats.statements();
+
+                commit();
+
+            }
+        }
+
+    }
+
+    @Name("com.metreeca.mesh.rdf4j.Query")
+    @Label("SPARQL Query")
+    @Description("SPARQL query issued by an RDF4J store")
+    @Category({ "Metreeca Mesh", "RDF4J Store" })
+    @StackTrace(false)
+    static final class Query extends Event {
+
+        @Label("Worker")
+        String worker;
+
+        @Label("Query Hash")
+        @Description("The hash code of the generated SPARQL query text")
+        int hash;
+
+        @Label("Size")
+        @DataAmount
+        int bytes;
+
+        @Label("Rows")
+        long rows;
+
+
+        void commit(final RDF4JMetrics.Worker worker, final String sparql, final long rows) {
+            if ( shouldCommit() ) {
+
+                this.worker=worker.name();
+                this.hash=sparql.hashCode();
+                this.bytes=sparql.getBytes(UTF_8).length;
+                this.rows=rows;
+
+                commit();
+
+            }
+        }
+
+    }
+
+    @Name("com.metreeca.mesh.rdf4j.Update")
+    @Label("Store Update")
+    @Description("Batch of statement updates applied by an RDF4J store")
+    @Category({ "Metreeca Mesh", "RDF4J Store" })
+    @StackTrace(false)
+    static final class Update extends Event {
+
+        @Label("Statements")
+        long statements;
+
+
+        void commit(final long statements) {
+            if ( shouldCommit() ) {
+
+                this.statements=statements;
+
+                commit();
+
+            }
+        }
+
+    }
+
+
+    //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private _StoreEvents() { }
+
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright © 2022-2025 Metreeca srl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.metreeca.mesh.rdf4j;
+
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+import static java.lang.String.format;
+
+/**
+ * Group commit coordinator.
+ *
+ * <p>Coalesces write tasks submitted within a time window into a single transaction. The first task submitted to an
+ * empty group waits for the window to elapse and then executes all collected tasks on behalf of their submitters;
+ * failures are isolated, so that each submitter observes only the outcome of its own task:</p>
+ *
+ * <ul>
+ *     <li>if a task fails, the transaction is rolled back, the task is reported as failed and the remaining tasks are
+ *     executed again in a new transaction;</li>
+ *     <li>if the shared commit fails, tasks are executed again, each in its own transaction.</li>
+ * </ul>
+ */
+final class _StoreGroup {
+
+    private static final Logger LOGGER=Logger.getLogger(_StoreGroup.class.getName());
+
+
+    private final Duration window;
+
+    private final List<Request> pending=new ArrayList<>();
+
+    private boolean open; // guarded by pending
+
+
+    _StoreGroup(final Duration window) {
+        this.window=window;
+    }
+
+
+    Duration window() {
+        return window;
+    }
+
+    boolean enabled() {
+        return !window.isZero();
+    }
+
+
+    //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /*
+     * Submits a write task, blocking until the transaction including it is committed.
+     */
+    int submit(final RDF4JStore rdf4j, final Function<RepositoryConnection, Integer> task) {
+
+        final Request request=new Request(task, new CompletableFuture<>());
+
+        final boolean leader;
+
+        synchronized ( pending ) {
+
+            pending.add(request);
+
+            leader=!open;
+            open=true;
+
+        }
+
+        if ( leader ) {
+
+            try {
+
+                Thread.sleep(window);
+
+            } catch ( final InterruptedException e ) {
+
+                Thread.currentThread().interrupt(); // commit collected tasks anyway
+
+            }
+
+            final List<Request> batch;
+
+            synchronized ( pending ) {
+
+                batch=new ArrayList<>(pending);
+
+                pending.clear();
+                open=false;
+
+            }
+
+            execute(rdf4j, batch);
+
+        }
+
+        try {
+
+            return request.result().join();
+
+        } catch ( final CompletionException e ) {
+
+            throw e.getCause() instanceof final RuntimeException cause ? cause : e;
+
+        }
+    }
+
+
+    private void execute(final RDF4JStore rdf4j, final List<Request> batch) {
+
+        final List<Request> active=new ArrayList<>(batch);
+
+        while ( !active.isEmpty() ) {
+
+            final Map<Request, Integer> results=new IdentityHashMap<>();
+            final AtomicReference<Request> failed=new AtomicReference<>();
+
+            try {
+
+                rdf4j.txn(connection -> {
+
+                    for (final Request request : active) {
+
+                        failed.set(request);
+                        results.put(request, request.task().apply(connection));
+
+                    }
+
+                    failed.set(null);
+
+                    return null;
+
+                });
+
+                LOGGER.fine(() -> format("group committed <%,d> write tasks", active.size()));
+
+                active.forEach(request -> request.result().complete(results.get(request)));
+
+                return;
+
+            } catch ( final RuntimeException e ) {
+
+                final Request request=failed.get();
+
+                if ( request != null ) { // isolate the failed task and retry the others
+
+                    request.result().completeExceptionally(e);
+                    active.remove(request);
+
+                } else { // commit failure: execute each task in its own transaction
+
+                    for (final Request task : active) {
+                        try {
+
+                            task.result().complete(rdf4j.txn(task.task()));
+
+                        } catch ( final RuntimeException x ) {
+
+                            task.result().completeExceptionally(x);
+
+                        }
+                    }
+
+                    return;
+
+                }
+
+            } catch ( final Error e ) {
+
+                active.forEach(request -> request.result().completeExceptionally(e));
+
+                throw e;
+
+            }
+
+        }
+    }
+
+
+    //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private record Request(
+            Function<RepositoryConnection, Integer> task,
+            CompletableFuture<Integer> result
+    ) { }
+
+}
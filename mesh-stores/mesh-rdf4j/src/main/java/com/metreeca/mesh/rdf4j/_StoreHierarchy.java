@@ -0,0 +1,162 @@
+/*
+ * Copyright © 2022-2025 Metreeca srl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.metreeca.mesh.rdf4j;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.RepositoryResult;
+
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import static com.metreeca.mesh.rdf4j.SPARQLConverter.rdf;
+
+import static java.lang.String.format;
+
+/**
+ * Cached class hierarchy.
+ *
+ * <p>Materializes the reflexive and transitive closure of the {@code rdfs:subClassOf} relation, loading direct
+ * subclass links once for each graph context and computing closures on demand.</p>
+ *
+ * <p>Cached closures are discarded after transactions modifying subclass links are committed or rolled back.</p>
+ */
+final class _StoreHierarchy {
+
+    private static final Logger LOGGER=Logger.getLogger(_StoreHierarchy.class.getName());
+
+
+    private final Map<Optional<URI>, Closure> closures=new ConcurrentHashMap<>();
+
+    private final AtomicLong generation=new AtomicLong();
+
+    private final Set<RepositoryConnection> touched=ConcurrentHashMap.newKeySet();
+
+
+    /*
+     * Retrieves the current generation, incremented whenever cached closures are discarded.
+     */
+    long generation() {
+        return generation.get();
+    }
+
+    /*
+     * Discards cached closures, forcing the hierarchy to be reloaded on next access.
+     */
+    void invalidate() {
+        closures.clear();
+        generation.incrementAndGet();
+    }
+
+    /*
+     * Records that subclass links are modified by the transaction active on a connection.
+     */
+    void touch(final RepositoryConnection connection) {
+        touched.add(connection);
+    }
+
+    /*
+     * Discards cached closures if subclass links were modified by the transaction just committed or rolled back on a
+     * connection: closures loaded while the transaction was active may reflect its uncommitted changes.
+     */
+    void settle(final RepositoryConnection connection) {
+        if ( touched.remove(connection) ) { invalidate(); }
+    }
+
+
+    /*
+     * Retrieves a class along with all its direct and indirect subclasses.
+     */
+    Set<IRI> subclasses(final _StoreLoader loader, final URI context, final IRI clazz) {
+        return closures.computeIfAbsent(Optional.ofNullable(context), c -> load(loader, context)).closure(clazz);
+    }
+
+
+    //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private Closure load(final _StoreLoader loader, final URI context) {
+
+        final Map<IRI, Set<IRI>> links=new HashMap<>();
+
+        loader.read(connection -> {
+
+            final Resource[] contexts=context == null ? new Resource[0] : new Resource[]{ rdf(context) };
+
+            try ( final RepositoryResult<Statement> statements=connection.getStatements(
+                    null, RDFS.SUBCLASSOF, null, true, contexts
+            ) ) {
+
+                for (final Statement statement : statements) {
+                    if ( statement.getSubject() instanceof final IRI subclass
+                         && statement.getObject() instanceof final IRI superclass ) {
+                        links.computeIfAbsent(superclass, k -> new HashSet<>()).add(subclass);
+                    }
+                }
+
+            }
+
+        });
+
+        LOGGER.fine(() -> format("loaded <%,d> superclasses", links.size()));
+
+        return new Closure(links);
+    }
+
+
+    //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private static final class Closure {
+
+        private final Map<IRI, Set<IRI>> links; // superclass > direct subclasses
+        private final Map<IRI, Set<IRI>> closures=new ConcurrentHashMap<>();
+
+
+        private Closure(final Map<IRI, Set<IRI>> links) {
+            this.links=links;
+        }
+
+
+        private Set<IRI> closure(final IRI clazz) {
+            return closures.computeIfAbsent(clazz, c -> {
+
+                final Set<IRI> visited=new LinkedHashSet<>();
+                final Deque<IRI> pending=new ArrayDeque<>(List.of(c));
+
+                while ( !pending.isEmpty() ) {
+
+                    final IRI next=pending.pop();
+
+                    if ( visited.add(next) ) { // tolerate cycles
+                        pending.addAll(links.getOrDefault(next, Set.of()));
+                    }
+
+                }
+
+                return Collections.unmodifiableSet(visited);
+
+            });
+        }
+
+    }
+
+}
@@ -17,30 +17,70 @@
 package com.metreeca.mesh.rdf4j;
 
 import com.metreeca.mesh.Value;
+import com.metreeca.mesh.pipe.StoreException;
 import com.metreeca.mesh.queries.Query;
 import com.metreeca.mesh.queries.Tuple;
 import com.metreeca.mesh.shapes.Property;
 import com.metreeca.mesh.shapes.Shape;
 import com.metreeca.mesh.shapes.Type;
 
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.GraphQuery;
+import org.eclipse.rdf4j.query.Operation;
+import org.eclipse.rdf4j.query.QueryInterruptedException;
+import org.eclipse.rdf4j.query.TupleQuery;
 import org.eclipse.rdf4j.repository.RepositoryConnection;
 
 import java.net.URI;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 
+import static com.metreeca.mesh.rdf4j.Coder.nothing;
+import static com.metreeca.mesh.rdf4j.Coder.quoted;
+import static com.metreeca.mesh.rdf4j.SPARQL.*;
+import static com.metreeca.mesh.rdf4j.SPARQLConverter.rdf;
 import static com.metreeca.mesh.shapes.Property.property;
+import static com.metreeca.shim.Collections.list;
+import static com.metreeca.shim.Locales.ANY;
+import static com.metreeca.shim.Locales.locale;
 import static com.metreeca.shim.URIs.base;
 
+import static java.lang.String.format;
+import static java.util.Locale.ROOT;
 import static java.util.concurrent.CompletableFuture.allOf;
+import static java.util.concurrent.CompletableFuture.completedFuture;
 import static java.util.function.Predicate.not;
 
 final class _StoreLoader {
 
+    private static final URI SUBCLASS_OF=URI.create(RDFS.SUBCLASSOF.stringValue());
+
+
+    private final URI context;
+
     private final RepositoryConnection connection;
+    private final _StorePool pool; // null if reads are not to be fanned out over spare connections
+
+    private final Lock lock=new ReentrantLock(); // connections are not guaranteed to be thread-safe
+
+    private final _StoreHierarchy classes;
+    private final RDF4JLimits limits;
+
+    private final AtomicLong rows=new AtomicLong(); // result rows charged against the row budget
+
+    private final _StoreMeter meter;
 
     private final SPARQLSelector selector;
     private final SPARQLFetcher fetcher;
@@ -48,51 +88,283 @@ final class _StoreLoader {
 
 
     _StoreLoader(final RDF4JStore rdf4j, final RepositoryConnection connection) {
+        this(rdf4j, connection, false, null, list());
+    }
+
+    /*
+     * Query limits are enforced only if limited, that is for loaders driving read operations: write operations must
+     * process every matching resource. Spare pooled connections don't see uncommitted changes and don't share the
+     * snapshot of the shared connection: they may be used only for read-only operations executed outside write
+     * transactions without snapshot isolation; localized values are restricted to the best matches for the preferred
+     * locales, if any.
+     */
+    _StoreLoader(
+            final RDF4JStore rdf4j,
+            final RepositoryConnection connection,
+            final boolean limited,
+            final _StorePool pool,
+            final List<Locale> locales
+    ) {
+
+        this.context=rdf4j.context();
 
         this.connection=connection;
+        this.pool=pool;
+
+        this.classes=rdf4j.classes();
+        this.limits=limited ? rdf4j.limits() : RDF4JLimits.limits();
 
-        this.selector=new SPARQLSelector(rdf4j);
-        this.fetcher=new SPARQLFetcher(rdf4j);
+        this.meter=new _StoreMeter(rdf4j.metrics());
+
+        this.selector=new SPARQLSelector(rdf4j, limits, locales);
+        this.fetcher=new SPARQLFetcher(rdf4j, locales);
         this.updater=new SPARQLUpdater(rdf4j);
     }
 
 
     <T extends CompletableFuture<?>> T execute(final Supplier<T> task) {
 
+        final _StoreEvents.Operation event=new _StoreEvents.Operation();
+
+        event.begin();
+
         final T value=task.get();
 
-        CompletableFuture<?>[] reading;
-        CompletableFuture<?>[] writing;
+        try {
 
-        do {
+            drain().join();
 
-            // read current state before modifying it to support handling of embedded values
+        } catch ( final CompletionException e ) {
 
-            reading=Stream.of(selector, fetcher)
-                    .map(v -> v.run(connection))
-                    .filter(not(CompletableFuture::isDone))
-                    .toArray(CompletableFuture[]::new);
+            throw failure(e);
+
+        } finally {
+
+            event.commit(context, meter.operation());
+
+        }
+
+        return value;
+    }
+
+    /*
+     * Executes a task without blocking the caller, completing when the task and all the worker rounds it triggers
+     * are done.
+     */
+    <V> CompletableFuture<V> executeAsync(final Supplier<? extends CompletableFuture<V>> task) {
+
+        final _StoreEvents.Operation event=new _StoreEvents.Operation();
+
+        event.begin();
+
+        final CompletableFuture<V> value=task.get();
+
+        return drain()
+                .<Void>handle((v, e) -> {
+
+                    event.commit(context, meter.operation());
+
+                    if ( e != null ) { throw failure(e); } else { return v; }
+
+                })
+                .thenCompose(v -> value);
+    }
+
+
+    private CompletableFuture<Void> drain() {
+
+        final long start=System.nanoTime();
+
+        // read current state before modifying it to support handling of embedded values
 
-            allOf(reading).join();
+        final CompletableFuture<?>[] reading=Stream.of(selector, fetcher)
+                .map(v -> v.run(this))
+                .filter(not(CompletableFuture::isDone))
+                .toArray(CompletableFuture[]::new);
 
-            writing=Stream.of(updater)
-                    .map(v -> v.run(connection))
+        return allOf(reading).thenCompose(r -> {
+
+            final long read=System.nanoTime();
+
+            final CompletableFuture<?>[] writing=Stream.of(updater)
+                    .map(v -> v.run(this))
                     .filter(not(CompletableFuture::isDone))
                     .toArray(CompletableFuture[]::new);
 
-            allOf(writing).join();
+            return allOf(writing).thenCompose(w -> {
 
-        } while ( reading.length+writing.length > 0 );
+                if ( reading.length+writing.length > 0 ) {
 
-        return value;
+                    meter.round(read-start, System.nanoTime()-read);
+
+                    return drain();
+
+                } else {
+
+                    return completedFuture(null);
+
+                }
+
+            });
+
+        });
+    }
+
+
+    /*
+     * Reports a worker failure, converting query timeouts to store exceptions.
+     */
+    private RuntimeException failure(final Throwable error) {
+
+        final Throwable cause=error instanceof CompletionException && error.getCause() != null
+                ? error.getCause()
+                : error;
+
+        if ( cause instanceof QueryInterruptedException ) {
+
+            return new StoreException(format(
+                    "query execution time limit <%,d> ms exceeded", limits.timeout().toMillis()
+            ));
+
+        } else if ( cause instanceof final RuntimeException exception ) {
+
+            return exception;
+
+        } else {
+
+            return new CompletionException(cause);
+
+        }
+    }
+
+
+    /*
+     * Evaluates a tuple query under the configured execution time limit, charging result rows against the row
+     * budget of the operation as they are consumed; query metrics are recorded when the returned stream is closed.
+     */
+    Stream<BindingSet> evaluate(final RDF4JMetrics.Worker worker, final String sparql, final TupleQuery query) {
+        return evaluate(worker, sparql, query, () -> query.evaluate().stream());
+    }
+
+    /*
+     * Evaluates a graph query like a tuple query, charging each result statement as a row.
+     */
+    Stream<Statement> evaluate(final RDF4JMetrics.Worker worker, final String sparql, final GraphQuery query) {
+        return evaluate(worker, sparql, query, () -> query.evaluate().stream());
+    }
+
+    /*
+     * Charges the results of direct statement lookups against the row budget of the operation like query results;
+     * lookups bypass SPARQL query processing altogether and are recorded as empty queries.
+     */
+    <T> Stream<T> evaluate(final RDF4JMetrics.Worker worker, final Supplier<Stream<T>> results) {
+        return charge(worker, "", results);
+    }
+
+    private <T> Stream<T> evaluate(
+            final RDF4JMetrics.Worker worker,
+            final String sparql,
+            final Operation query,
+            final Supplier<Stream<T>> results
+    ) {
+
+        final Duration timeout=limits.timeout();
+
+        if ( !timeout.isZero() ) { // rdf4j supports only second granularity
+            query.setMaxExecutionTime((int)Math.min(Integer.MAX_VALUE, timeout.plusSeconds(1).minusNanos(1).toSeconds()));
+        }
+
+        return charge(worker, sparql, results);
+    }
+
+    private <T> Stream<T> charge(
+            final RDF4JMetrics.Worker worker,
+            final String sparql,
+            final Supplier<Stream<T>> results
+    ) {
+
+        final long budget=limits.rows();
+
+        final _StoreEvents.Query event=new _StoreEvents.Query();
+
+        event.begin();
+
+        final long start=System.nanoTime();
+        final AtomicLong count=new AtomicLong();
+
+        return results.get()
+
+                .peek(result -> {
+
+                    count.incrementAndGet();
 
+                    if ( budget > 0 && rows.incrementAndGet() > budget ) {
+                        throw new StoreException(format("row budget <%,d> exceeded", budget));
+                    }
+
+                })
+
+                .onClose(() -> {
+
+                    meter.query(worker, sparql, count.get(), System.nanoTime()-start);
+                    event.commit(worker, sparql, count.get());
+
+                });
+    }
+
+    /*
+     * Records the application of a batch of updates.
+     */
+    void updated(final long statements, final long elapsed) {
+        meter.update(statements, elapsed);
+    }
+
+
+    /*
+     * Executes a read task, either on a spare pooled connection, if available, or on the shared connection.
+     */
+    void read(final Consumer<RepositoryConnection> task) {
+
+        final RepositoryConnection spare=pool == null ? null : pool.lease();
+
+        if ( spare == null ) { write(task); } else {
+
+            try {
+
+                task.accept(spare);
+
+            } finally {
+
+                pool.release(spare);
+
+            }
+
+        }
+    }
+
+    /*
+     * Executes a write task on the shared connection.
+     */
+    void write(final Consumer<RepositoryConnection> task) {
+
+        lock.lock();
+
+        try {
+
+            task.accept(connection);
+
+        } finally {
+
+            lock.unlock();
+
+        }
     }
 
 
     //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
-    Value retrieve(final Value value, final List<Locale> locales) { // !!! review usage
-        return new _StoreReader(this).retrieve(value, locales);
+    Value retrieve(final Value value) {
+        return new _StoreReader(this).retrieve(value);
     }
 
 
@@ -124,52 +396,162 @@ final class _StoreLoader {
         return fetcher.fetch(id, property);
     }
 
+    void prefetch(final Collection<URI> ids, final SPARQLFetcher.Frame frame) {
+        fetcher.prefetch(ids, frame);
+    }
+
 
     CompletableFuture<Void> insert(final URI id, final Set<Type> types) {
         return updater.insert(id, types);
     }
 
     CompletableFuture<Void> insert(final URI id, final Property property, final Value value) {
+
+        review(property);
+
         return updater.insert(id, property, value);
     }
 
 
+    CompletableFuture<Void> update(final URI id, final Property property, final Value value) {
+
+        review(property);
+
+        return updater.update(id, property, value);
+    }
+
+
     CompletableFuture<Void> remove(final URI id) {
+
+        write(connection -> {
+
+            final Resource[] contexts=context == null ? new Resource[0] : new Resource[]{ rdf(context) };
+
+            if ( connection.hasStatement(rdf(id), RDFS.SUBCLASSOF, null, false, contexts)
+                 || connection.hasStatement(null, RDFS.SUBCLASSOF, rdf(id), false, contexts) ) {
+                classes.touch(connection);
+            }
+
+        });
+
         return updater.remove(id);
     }
 
     CompletableFuture<Void> remove(final URI id, final Property property) {
+
+        review(property);
+
         return updater.remove(id, property);
     }
 
 
+    /*
+     * Records that subclass links are about to be modified, so that the cached class hierarchy is discarded once the
+     * active transaction is committed or rolled back.
+     */
+    private void review(final Property property) {
+        if ( property.forward().or(property::reverse).filter(SUBCLASS_OF::equals).isPresent() ) {
+            classes.touch(connection);
+        }
+    }
+
+
     //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
     abstract static class Worker {
 
+        private final _StoreThrottle throttle;
+        private final List<String> ranges; // language ranges in decreasing priority order
+
         private final Map<Object, String> scope=new ConcurrentHashMap<>();
 
 
-        String id(final Object object) {
-            return scope.computeIfAbsent(object, o -> String.valueOf(scope.size()));
+        Worker(final RDF4JStore rdf4j) {
+            this(rdf4j, list());
         }
 
-        <T> Collection<T> snapshot(final Collection<T> collection) {
-            synchronized ( collection ) {
-                try {
+        Worker(final RDF4JStore rdf4j, final List<Locale> locales) {
+
+            this.throttle=rdf4j.throttle();
+
+            this.ranges=list(locales.stream()
+                    .filter(not(ROOT::equals)) // plain literals are always retained
+                    .map(locale -> locale.equals(ANY) ? "*" : locale(locale))
+                    .distinct()
+            );
+        }
 
-                    return new ArrayList<>(collection);
 
-                } finally {
+        CompletableFuture<Void> async(final Runnable task) {
+            return throttle.async(task);
+        }
 
-                    collection.clear();
 
+        /*
+         * Generates a filter retaining non-literal values, plain literals and tagged literals matching any of the
+         * preferred language ranges.
+         */
+        Coder localize(final Coder value) {
+            return ranges.isEmpty() ? nothing() : filter(or(Stream
+                    .concat(
+                            Stream.of(nt(bound(value)), nt(isLiteral(value)), eq(lang(value), quoted(""))),
+                            ranges.stream().map(range -> langMatches(lang(value), quoted(range)))
+                    )
+                    .toList()
+            ));
+        }
+
+        /*
+         * Checks if a language tag is retained by the localization filter.
+         */
+        boolean localized(final String tag) {
+            return ranges.isEmpty() || tag.isEmpty() || rank(tag) < ranges.size();
+        }
+
+        /*
+         * Ranks a language tag according to the first preferred language range it matches, using RFC 4647 basic
+         * filtering like SPARQL langMatches(); unmatched tags rank after all preferred ranges.
+         */
+        int rank(final String tag) {
+
+            final String lowercase=tag.toLowerCase(ROOT);
+
+            for (int index=0; index < ranges.size(); ++index) {
+
+                final String range=ranges.get(index).toLowerCase(ROOT);
+
+                if ( range.equals("*") ? !lowercase.isEmpty()
+                        : lowercase.equals(range) || lowercase.startsWith(range+"-") ) {
+                    return index;
                 }
+
             }
+
+            return ranges.size();
+        }
+
+
+        String id(final Object object) {
+            return scope.computeIfAbsent(object, o -> String.valueOf(scope.size()));
+        }
+
+        /*
+         * Drains a concurrent task queue: each element is handed out only if removed by the caller, so that elements
+         * added concurrently are either included in the snapshot or retained for the next round, but never lost.
+         */
+        <T> Collection<T> snapshot(final Collection<T> collection) {
+
+            final Collection<T> snapshot=new ArrayList<>();
+
+            for (final T element : collection) {
+                if ( collection.remove(element) ) { snapshot.add(element); }
+            }
+
+            return snapshot;
         }
 
 
-        abstract CompletableFuture<Void> run(final RepositoryConnection connection);
+        abstract CompletableFuture<Void> run(final _StoreLoader loader);
 
     }
 
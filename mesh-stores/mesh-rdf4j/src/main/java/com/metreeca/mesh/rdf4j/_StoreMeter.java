@@ -0,0 +1,142 @@
+/*
+ * Copyright © 2022-2025 Metreeca srl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.metreeca.mesh.rdf4j;
+
+import com.metreeca.mesh.rdf4j.RDF4JMetrics.Worker;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Operation metrics accumulator.
+ *
+ * <p>Collects the measurements of a single store operation, forwarding them to the configured metrics
+ * listener.</p>
+ */
+final class _StoreMeter {
+
+    /*
+     * Default no-op metrics listener: query sizes aren't measured, as they would be reported to no one.
+     */
+    static final RDF4JMetrics NONE=new RDF4JMetrics() { };
+
+
+    private static final Logger LOGGER=Logger.getLogger(_StoreMeter.class.getName());
+
+
+    private final RDF4JMetrics metrics;
+    private final boolean sized; // false if query sizes are not to be measured
+
+    private final long start=System.nanoTime();
+
+    private final AtomicInteger rounds=new AtomicInteger();
+
+    private final LongAdder selections=new LongAdder();
+    private final LongAdder fetches=new LongAdder();
+    private final LongAdder updates=new LongAdder();
+
+    private final LongAdder rows=new LongAdder();
+    private final LongAdder statements=new LongAdder();
+    private final LongAdder bytes=new LongAdder();
+
+    private final LongAdder reading=new LongAdder();
+    private final LongAdder writing=new LongAdder();
+
+
+    _StoreMeter(final RDF4JMetrics metrics) {
+        this.metrics=metrics;
+        this.sized=metrics != NONE;
+    }
+
+
+    //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    void query(final Worker worker, final String sparql, final long rows, final long elapsed) {
+
+        final int bytes=sized ? sparql.getBytes(UTF_8).length : 0;
+
+        (worker == Worker.SELECTOR ? selections : fetches).increment();
+
+        this.rows.add(rows);
+        this.bytes.add(bytes);
+
+        report(() -> metrics.query(worker, bytes, rows, Duration.ofNanos(elapsed)));
+    }
+
+    void update(final long statements, final long elapsed) {
+
+        updates.increment();
+
+        this.statements.add(statements);
+
+        report(() -> metrics.update(statements, Duration.ofNanos(elapsed)));
+    }
+
+    void round(final long reading, final long writing) {
+
+        final int round=rounds.getAndIncrement();
+
+        this.reading.add(reading);
+        this.writing.add(writing);
+
+        report(() -> metrics.round(round, Duration.ofNanos(reading), Duration.ofNanos(writing)));
+    }
+
+    RDF4JMetrics.Stats operation() {
+
+        final RDF4JMetrics.Stats stats=new RDF4JMetrics.Stats(
+
+                rounds.get(),
+
+                selections.sum(),
+                fetches.sum(),
+                updates.sum(),
+
+                rows.sum(),
+                statements.sum(),
+                bytes.sum(),
+
+                Duration.ofNanos(reading.sum()),
+                Duration.ofNanos(writing.sum()),
+                Duration.ofNanos(System.nanoTime()-start)
+
+        );
+
+        report(() -> metrics.operation(stats));
+
+        return stats;
+    }
+
+
+    private void report(final Runnable notification) {
+        try {
+
+            notification.run();
+
+        } catch ( final RuntimeException e ) {
+
+            LOGGER.log(Level.WARNING, "metrics listener failure", e);
+
+        }
+    }
+
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright © 2022-2025 Metreeca srl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.metreeca.mesh.rdf4j;
+
+import org.eclipse.rdf4j.common.transaction.IsolationLevel;
+
+import java.net.URI;
+import java.util.Set;
+
+import static java.lang.String.format;
+
+/**
+ * Store tuning options.
+ *
+ * <p>Collects the plain configuration values of an {@linkplain RDF4JStore RDF4J store}, as opposed to the stateful
+ * components shared by derived store instances; options are immutable and are updated through functional setters
+ * returning a copy with a single option changed.</p>
+ *
+ * @param context   the context URI for named graph operations; {@code null} for default graph
+ * @param batch     the maximum number of statements added to or removed from the repository in a single bulk
+ *                  operation
+ * @param chunk     the maximum number of resources committed in a single transaction by streaming insertions and of
+ *                  items fetched in a single page by streaming retrievals
+ * @param parallel  {@code true} if top-level retrievals evaluate independent queries over multiple pooled connections
+ * @param search    the properties indexed by the full-text index of the underlying repository
+ * @param hierarchy {@code true} if class constraints are expanded using a cached class hierarchy
+ * @param isolation the isolation level of the transactions executing top-level read operations; {@code null} if read
+ *                  operations are executed without transactions
+ * @param limits    the safety rails applied to the queries generated by read operations
+ * @param metrics   the listener receiving measurements about the execution of store operations
+ * @param construct {@code true} if resource frames are retrieved with CONSTRUCT queries
+ * @param local     {@code true} if resource edges are retrieved with direct statement lookups
+ */
+record _StoreOptions(
+
+        URI context,
+
+        int batch,
+        int chunk,
+
+        boolean parallel,
+        Set<URI> search,
+        boolean hierarchy,
+        IsolationLevel isolation,
+        RDF4JLimits limits,
+        RDF4JMetrics metrics,
+        boolean construct,
+        boolean local
+
+) {
+
+    _StoreOptions {
+
+        if ( context != null && !context.isAbsolute() ) {
+            throw new IllegalArgumentException(format("relative partition URI <%s>", context));
+        }
+
+        if ( batch < 1 ) {
+            throw new IllegalArgumentException(format("non-positive batch size <%d>", batch));
+        }
+
+        if ( chunk < 1 ) {
+            throw new IllegalArgumentException(format("non-positive chunk size <%d>", chunk));
+        }
+
+    }
+
+
+    _StoreOptions context(final URI context) {
+        return new _StoreOptions(
+                context, batch, chunk, parallel, search, hierarchy, isolation, limits, metrics, construct, local
+        );
+    }
+
+    _StoreOptions batch(final int batch) {
+        return new _StoreOptions(
+                context, batch, chunk, parallel, search, hierarchy, isolation, limits, metrics, construct, local
+        );
+    }
+
+    _StoreOptions chunk(final int chunk) {
+        return new _StoreOptions(
+                context, batch, chunk, parallel, search, hierarchy, isolation, limits, metrics, construct, local
+        );
+    }
+
+    _StoreOptions parallel(final boolean parallel) {
+        return new _StoreOptions(
+                context, batch, chunk, parallel, search, hierarchy, isolation, limits, metrics, construct, local
+        );
+    }
+
+    _StoreOptions search(final Set<URI> search) {
+        return new _StoreOptions(
+                context, batch, chunk, parallel, search, hierarchy, isolation, limits, metrics, construct, local
+        );
+    }
+
+    _StoreOptions hierarchy(final boolean hierarchy) {
+        return new _StoreOptions(
+                context, batch, chunk, parallel, search, hierarchy, isolation, limits, metrics, construct, local
+        );
+    }
+
+    _StoreOptions isolation(final IsolationLevel isolation) {
+        return new _StoreOptions(
+                context, batch, chunk, parallel, search, hierarchy, isolation, limits, metrics, construct, local
+        );
+    }
+
+    _StoreOptions limits(final RDF4JLimits limits) {
+        return new _StoreOptions(
+                context, batch, chunk, parallel, search, hierarchy, isolation, limits, metrics, construct, local
+        );
+    }
+
+    _StoreOptions metrics(final RDF4JMetrics metrics) {
+        return new _StoreOptions(
+                context, batch, chunk, parallel, search, hierarchy, isolation, limits, metrics, construct, local
+        );
+    }
+
+    _StoreOptions construct(final boolean construct) {
+        return new _StoreOptions(
+                context, batch, chunk, parallel, search, hierarchy, isolation, limits, metrics, construct, local
+        );
+    }
+
+    _StoreOptions local(final boolean local) {
+        return new _StoreOptions(
+                context, batch, chunk, parallel, search, hierarchy, isolation, limits, metrics, construct, local
+        );
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright © 2022-2025 Metreeca srl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.metreeca.mesh.rdf4j;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bounded query template cache.
+ *
+ * <p>Retains generated SPARQL query templates keyed on the shape of the originating request, evicting them on a
+ * least-recently-used basis when the configured size is exceeded: anchor resources and filter constants are
+ * referenced through placeholder variables bound on execution, so that cached plans are shared among requests
+ * differing only in their values.</p>
+ */
+final class _StorePlans {
+
+    private final int size;
+
+    private final Map<Object, Plan> plans=new LinkedHashMap<>(16, 0.75f, true); // access order
+
+    private final LongAdder hits=new LongAdder();
+    private final LongAdder misses=new LongAdder();
+
+
+    _StorePlans(final int size) {
+        this.size=size;
+    }
+
+
+    int size() {
+        return size;
+    }
+
+    RDF4JStore.Plans stats() {
+        synchronized ( plans ) {
+            return new RDF4JStore.Plans(
+                    plans.size(),
+                    hits.sum(),
+                    misses.sum()
+            );
+        }
+    }
+
+
+    //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    Plan plan(final Object key, final Supplier<Plan> generator) {
+
+        synchronized ( plans ) {
+
+            final Plan plan=plans.get(key);
+
+            if ( plan != null ) {
+
+                hits.increment();
+
+                return plan;
+
+            }
+
+        }
+
+        misses.increment();
+
+        final Plan plan=generator.get(); // generate outside the lock; concurrent misses on the same key are benign
+
+        synchronized ( plans ) {
+
+            plans.put(key, plan);
+
+            for (final Iterator<Object> keys=plans.keySet().iterator(); plans.size() > size; ) {
+                keys.next();
+                keys.remove();
+            }
+
+        }
+
+        return plan;
+    }
+
+
+    //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Generated query plan.
+     *
+     * @param sparql the generated SPARQL query template
+     * @param vars   the names of the variables generated for well-known query elements and placeholders
+     */
+    record Plan(String sparql, Map<Object, String> vars) {
+
+        String var(final Object element) {
+            return vars.get(element);
+        }
+
+    }
+
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright © 2022-2025 Metreeca srl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.metreeca.mesh.rdf4j;
+
+import com.metreeca.mesh.pipe.StoreException;
+
+import org.eclipse.rdf4j.repository.Repository;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Bounded repository connection pool.
+ *
+ * <p>Hands out connections to top-level store operations, retaining released connections for reuse and closing
+ * surplus ones after the configured idle timeout. The minimum number of idle connections is opened on first use, as
+ * the repository may be initialized lazily.</p>
+ *
+ * <p>Spare connections leased for parallel reads draw from the same capacity as borrowed ones, so that the number of
+ * open connections never exceeds the maximum pool size; leases never wait and yield to operations already waiting to
+ * borrow a connection, so that fanned out reads never starve top-level operations.</p>
+ *
+ * <p>Closing the pool closes idle connections; connections released after the pool is closed are closed rather than
+ * retained for reuse.</p>
+ */
+final class _StorePool implements AutoCloseable {
+
+    private static final Logger LOGGER=Logger.getLogger(_StorePool.class.getName());
+
+
+    private final Repository repository;
+    private final RDF4JPool pool;
+
+    private final Semaphore permits;
+
+    private final Deque<Idle> idle=new ArrayDeque<>();
+    private final AtomicBoolean filled=new AtomicBoolean();
+    private final AtomicBoolean closed=new AtomicBoolean();
+
+    private final AtomicInteger borrowed=new AtomicInteger();
+    private final LongAdder borrows=new LongAdder();
+    private final LongAdder waiting=new LongAdder();
+
+
+    _StorePool(final Repository repository, final RDF4JPool pool) {
+        this.repository=repository;
+        this.pool=pool;
+        this.permits=new Semaphore(pool.max(), true);
+    }
+
+
+    RDF4JPool pool() {
+        return pool;
+    }
+
+    RDF4JPool.Stats stats() {
+        synchronized ( idle ) {
+            return new RDF4JPool.Stats(
+                    borrowed.get(),
+                    idle.size(),
+                    borrows.sum(),
+                    Duration.ofNanos(waiting.sum())
+            );
+        }
+    }
+
+
+    //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    RepositoryConnection borrow() {
+
+        final long start=System.nanoTime();
+
+        try {
+
+            if ( !permits.tryAcquire(pool.timeout().toNanos(), NANOSECONDS) ) {
+                throw new StoreException(format(
+                        "no connection available within <%,d> ms", pool.timeout().toMillis()
+                ));
+            }
+
+        } catch ( final InterruptedException e ) {
+
+            Thread.currentThread().interrupt();
+
+            throw new StoreException("interrupted while waiting for a connection");
+
+        } finally {
+
+            waiting.add(System.nanoTime()-start);
+
+        }
+
+        try {
+
+            final RepositoryConnection connection=acquire();
+
+            borrowed.incrementAndGet();
+            borrows.increment();
+
+            return connection;
+
+        } catch ( final RuntimeException e ) {
+
+            permits.release();
+
+            throw e;
+
+        }
+    }
+
+    /*
+     * Borrows a spare connection only if pool capacity is immediately available and no operation is waiting to borrow
+     * a connection, returning null otherwise; the zero timeout acquisition honours the fairness of the permits.
+     */
+    RepositoryConnection lease() {
+
+        if ( !available() ) { return null; } else {
+
+            try {
+
+                final RepositoryConnection connection=acquire();
+
+                borrowed.incrementAndGet();
+                borrows.increment();
+
+                return connection;
+
+            } catch ( final RuntimeException e ) {
+
+                permits.release();
+
+                LOGGER.log(Level.FINE, "unable to lease pooled connection", e);
+
+                return null;
+
+            }
+
+        }
+    }
+
+    void release(final RepositoryConnection connection) {
+        try {
+
+            if ( connection.isOpen() ) {
+
+                if ( connection.isActive() ) { connection.rollback(); } // dangling transaction
+
+                synchronized ( idle ) {
+                    if ( closed.get() ) { close(connection); } else {
+                        idle.push(new Idle(connection, System.nanoTime()));
+                    }
+                }
+
+            }
+
+        } catch ( final RuntimeException e ) {
+
+            close(connection);
+
+        } finally {
+
+            borrowed.decrementAndGet();
+
+            permits.release();
+
+            evict();
+
+        }
+    }
+
+
+    @Override public void close() {
+        synchronized ( idle ) {
+
+            closed.set(true);
+
+            while ( !idle.isEmpty() ) { close(idle.pop().connection()); }
+
+        }
+    }
+
+
+    //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private boolean available() {
+        try {
+
+            return permits.tryAcquire(0, NANOSECONDS);
+
+        } catch ( final InterruptedException e ) {
+
+            Thread.currentThread().interrupt();
+
+            return false;
+
+        }
+    }
+
+    private RepositoryConnection acquire() {
+
+        if ( closed.get() ) {
+            throw new StoreException("closed connection pool");
+        }
+
+        prefill();
+        evict();
+
+        while ( true ) {
+
+            final Idle candidate;
+
+            synchronized ( idle ) {
+                candidate=idle.poll(); // most recently released first
+            }
+
+            if ( candidate == null ) { break; } else if ( valid(candidate.connection()) ) {
+
+                return candidate.connection();
+
+            } else {
+
+                close(candidate.connection());
+
+            }
+
+        }
+
+        return open();
+    }
+
+    private RepositoryConnection open() {
+
+        if ( !repository.isInitialized() ) { repository.init(); }
+
+        return repository.getConnection();
+    }
+
+
+    private void prefill() {
+        if ( pool.min() > 0 && filled.compareAndSet(false, true) ) {
+            for (int n=0; n < pool.min(); ++n) {
+
+                final RepositoryConnection connection=open();
+
+                synchronized ( idle ) {
+                    idle.push(new Idle(connection, System.nanoTime()));
+                }
+
+            }
+        }
+    }
+
+    private void evict() {
+
+        final long threshold=System.nanoTime()-pool.idle().toNanos();
+
+        synchronized ( idle ) {
+            while ( idle.size() > pool.min() && idle.peekLast().since()-threshold < 0 ) {
+                close(idle.pollLast().connection());
+            }
+        }
+    }
+
+
+    private boolean valid(final RepositoryConnection connection) {
+        try {
+
+            return connection.isOpen() && !connection.isActive() && (!pool.validate()
+                                                                    || connection.prepareBooleanQuery("ask {}").evaluate()
+            );
+
+        } catch ( final RuntimeException e ) {
+
+            LOGGER.log(Level.FINE, "invalid pooled connection", e);
+
+            return false;
+
+        }
+    }
+
+    private void close(final RepositoryConnection connection) {
+        try {
+
+            connection.close();
+
+        } catch ( final RuntimeException e ) {
+
+            LOGGER.log(Level.WARNING, "unable to close pooled connection", e);
+
+        }
+    }
+
+
+    //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private record Idle(RepositoryConnection connection, long since) { }
+
+}
@@ -22,6 +22,7 @@ import com.metreeca.mesh.queries.Query;
 import com.metreeca.mesh.queries.Specs;
 import com.metreeca.mesh.queries.Table;
 import com.metreeca.mesh.queries.Tuple;
+import com.metreeca.mesh.rdf4j.SPARQLFetcher.Frame;
 import com.metreeca.mesh.shapes.Property;
 import com.metreeca.mesh.shapes.Shape;
 
@@ -54,14 +55,14 @@ final class _StoreReader {
     }
 
 
-    Value retrieve(final Value model, final List<Locale> locales) {
-        return loader.execute(() -> retrieve(model)).join();
+    Value retrieve(final Value model) {
+        return loader.execute(() -> resolve(model)).join();
     }
 
 
     //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
-    private CompletableFuture<Value> retrieve(final Value model) {
+    private CompletableFuture<Value> resolve(final Value model) {
         return model.accept(new Visitor<>() {
 
             @Override public CompletableFuture<Value> visit(final Value host, final List<Value> values) {
@@ -78,6 +79,8 @@ final class _StoreReader {
                         "undefined shape in model value <%s>", host
                 )));
 
+                prefetch(list(id), shape, host);
+
                 return retrieve(id, shape, fields);
             }
 
@@ -235,6 +238,9 @@ final class _StoreReader {
 
 
     private CompletableFuture<Value> retrieve(final List<Value> values, final Shape shape, final Value model) {
+
+        prefetch(list(values.stream().flatMap(value -> value.id().stream())), shape, model);
+
         return allItemsOf(values.stream()
                 .map(value -> retrieve(value, shape, model))
                 .toList()
@@ -273,6 +279,58 @@ final class _StoreReader {
 
     //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
+    /*
+     * Offers the frame of a model for a set of resources to the fetcher, which speculatively retrieves it in a single
+     * round, if worth it for the configured retrieval mode, rather than in a round for each nesting level.
+     */
+    private void prefetch(final Collection<URI> ids, final Shape shape, final Value model) {
+
+        final Frame frame=frame(shape, model);
+
+        if ( !frame.properties().isEmpty() ) {
+            loader.prefetch(ids, frame);
+        }
+    }
+
+    /*
+     * Collects the properties to be fetched for a model and its nested resource models; query models are retrieved
+     * independently and ignored.
+     */
+    private Frame frame(final Shape shape, final Value model) {
+        return model.object()
+
+                .map(fields -> fields.entrySet().stream()
+                        .filter(not(field -> isReserved(field.getKey())))
+                        .flatMap(field -> shape.property(field.getKey()).stream().flatMap(property ->
+                                models(field.getValue()).map(nested ->
+                                        new Frame(Map.of(property, frame(property.shape(), nested)))
+                                )
+                        ))
+                        .reduce(Frame.frame(), Frame::merge)
+                )
+
+                .orElseGet(Frame::frame);
+    }
+
+    private Stream<Value> models(final Value value) {
+        return value.accept(new Visitor<>() {
+
+            @Override public Stream<Value> visit(final Value host, final Void nil) {
+                return Stream.empty();
+            }
+
+            @Override public Stream<Value> visit(final Value host, final List<Value> values) {
+                return values.stream();
+            }
+
+            @Override public Stream<Value> visit(final Value host, final Object object) {
+                return object instanceof Query ? Stream.empty() : Stream.of(host);
+            }
+
+        });
+    }
+
+
     /*
      * Recursively removes default values from models.
      */
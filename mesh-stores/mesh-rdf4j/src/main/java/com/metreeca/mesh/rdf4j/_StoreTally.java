@@ -0,0 +1,47 @@
+/*
+ * Copyright © 2022-2025 Metreeca srl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.metreeca.mesh.rdf4j;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Property update tally.
+ *
+ * <p>Tracks the statements written by property updates diffed against the stored state.</p>
+ */
+final class _StoreTally {
+
+    private final LongAdder added=new LongAdder();
+    private final LongAdder removed=new LongAdder();
+    private final LongAdder retained=new LongAdder();
+
+
+    void record(final int added, final int removed, final int retained) {
+        this.added.add(added);
+        this.removed.add(removed);
+        this.retained.add(retained);
+    }
+
+    RDF4JStore.Updates stats() {
+        return new RDF4JStore.Updates(
+                added.sum(),
+                removed.sum(),
+                2*retained.sum() // each retained statement saves a removal and a reinsertion
+        );
+    }
+
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright © 2022-2025 Metreeca srl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.metreeca.mesh.rdf4j;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static java.util.concurrent.CompletableFuture.delayedExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Bounded task executor.
+ *
+ * <p>Dispatches worker tasks to a delegate executor, limiting the number of concurrently running tasks; surplus
+ * tasks are queued without blocking the submitting thread and dispatched in submission order as running tasks
+ * complete.</p>
+ *
+ * <p>Tasks rejected by a saturated delegate executor are queued back and dispatched again as running tasks
+ * complete or, if no task is running, after a short delay: tasks are never run in the submitting thread.</p>
+ */
+final class _StoreThrottle implements Executor {
+
+    private static final Executor RETRY=delayedExecutor(10, MILLISECONDS);
+
+
+    private final Executor executor;
+    private final int concurrency;
+
+    private final Deque<Runnable> pending=new ArrayDeque<>();
+
+    private int running; // guarded by pending
+
+
+    _StoreThrottle(final Executor executor, final int concurrency) {
+        this.executor=executor;
+        this.concurrency=concurrency;
+    }
+
+
+    Executor executor() {
+        return executor;
+    }
+
+    int concurrency() {
+        return concurrency;
+    }
+
+
+    CompletableFuture<Void> async(final Runnable task) {
+        return CompletableFuture.runAsync(task, this);
+    }
+
+
+    //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    @Override public void execute(final Runnable task) {
+
+        if ( task == null ) {
+            throw new NullPointerException("null task");
+        }
+
+        synchronized ( pending ) {
+            pending.add(task);
+        }
+
+        drain();
+    }
+
+
+    /*
+     * Dispatches pending tasks while running permits are available.
+     */
+    private void drain() {
+        while ( true ) {
+
+            final Runnable task;
+
+            synchronized ( pending ) {
+
+                if ( running >= concurrency || pending.isEmpty() ) {
+                    return;
+                }
+
+                task=pending.poll();
+
+                ++running;
+
+            }
+
+            if ( !dispatch(task) ) {
+                return;
+            }
+
+        }
+    }
+
+    /*
+     * Hands a task over to the delegate executor, queueing it back if rejected.
+     */
+    private boolean dispatch(final Runnable task) {
+        try {
+
+            executor.execute(() -> {
+
+                try {
+
+                    task.run();
+
+                } finally {
+
+                    synchronized ( pending ) {
+                        --running;
+                    }
+
+                    drain();
+
+                }
+
+            });
+
+            return true;
+
+        } catch ( final RejectedExecutionException e ) {
+
+            final boolean idle;
+
+            synchronized ( pending ) {
+
+                pending.addFirst(task);
+
+                idle=--running == 0;
+
+            }
+
+            if ( idle ) { // no running task will drain the queue on completion
+                RETRY.execute(this::drain);
+            }
+
+            return false;
+
+        }
+    }
+
+}
@@ -54,77 +54,96 @@ final class _StoreWriter {
 
 
     int create(final Value value) {
+        return createAsync(value).join();
+    }
 
-        final List<Value> resources=resources(value, false, false);
+    int update(final Value value) {
+        return updateAsync(value).join();
+    }
 
-        if ( exist(resources) ) { return 0; } else {
+    int mutate(final Value value) {
+        return mutateAsync(value).join();
+    }
 
-            loader.execute(() -> create(resources)).join();
+    int delete(final Value value) {
+        return deleteAsync(value).join();
+    }
 
-            return resources.size();
 
-        }
+    int insert(final Value value) {
+        return insertAsync(value).join();
     }
 
-    int update(final Value value) {
-
-        final List<Value> resources=resources(value, false, false);
+    int remove(final Value value) {
+        return removeAsync(value).join();
+    }
 
-        if ( exist(resources) ) {
+    int modify(final Value insert, final Value remove) {
+        return modifyAsync(insert, remove).join();
+    }
 
-            loader.execute(() -> update(resources)).join();
 
-            return resources.size();
+    //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
-        } else { return 0; }
-    }
+    // existence checks are fused into the write pipeline: conditional writes are scheduled as soon as existence
+    // is known and executed in the same loader round as the batched existence query
 
-    int mutate(final Value value) {
+    CompletableFuture<Integer> createAsync(final Value value) {
 
-        final List<Value> resources=resources(value, false, true);
+        final List<Value> resources=resources(value, false, false);
 
-        if ( exist(resources) ) {
+        return loader.executeAsync(() -> exist(resources).thenCompose(exist -> exist
+                ? completedFuture(0)
+                : create(resources).thenApply(v -> resources.size())
+        ));
+    }
 
-            loader.execute(() -> mutate(resources)).join();
+    CompletableFuture<Integer> updateAsync(final Value value) {
 
-            return resources.size();
+        final List<Value> resources=resources(value, false, false);
 
-        } else { return 0; }
+        return loader.executeAsync(() -> exist(resources).thenCompose(exist -> exist
+                ? update(resources).thenApply(v -> resources.size())
+                : completedFuture(0)
+        ));
     }
 
-    int delete(final Value value) {
+    CompletableFuture<Integer> mutateAsync(final Value value) {
 
-        final List<Value> resources=resources(value, true, true);
+        final List<Value> resources=resources(value, false, true);
 
-        if ( exist(resources) ) {
+        return loader.executeAsync(() -> exist(resources).thenCompose(exist -> exist
+                ? mutate(resources).thenApply(v -> resources.size())
+                : completedFuture(0)
+        ));
+    }
 
-            loader.execute(() -> delete(resources)).join();
+    CompletableFuture<Integer> deleteAsync(final Value value) {
 
-            return resources.size();
+        final List<Value> resources=resources(value, true, true);
 
-        } else { return 0; }
+        return loader.executeAsync(() -> exist(resources).thenCompose(exist -> exist
+                ? delete(resources).thenApply(v -> resources.size())
+                : completedFuture(0)
+        ));
     }
 
 
-    int insert(final Value value) {
+    CompletableFuture<Integer> insertAsync(final Value value) {
 
         final List<Value> resources=resources(value, false, false);
 
-        loader.execute(() -> update(resources)).join();
-
-        return resources.size();
+        return loader.executeAsync(() -> update(resources)).thenApply(v -> resources.size());
     }
 
-    int remove(final Value value) {
+    CompletableFuture<Integer> removeAsync(final Value value) {
 
         final List<Value> resources=resources(value, true, true);
 
-        loader.execute(() -> delete(resources)).join();
-
-        return resources.size();
+        return loader.executeAsync(() -> delete(resources)).thenApply(v -> resources.size());
     }
 
-    int modify(final Value insert, final Value remove) {
+    CompletableFuture<Integer> modifyAsync(final Value insert, final Value remove) {
 
         final List<Value> insertions=resources(insert, false, false);
 
@@ -132,9 +151,8 @@ final class _StoreWriter {
                 .filter(r -> insertions.stream().noneMatch(i -> id(r).equals(id(i))))
         );
 
-        loader.execute(() -> allOf(update(insertions), delete(removals))).join();
-
-        return insertions.size()+removals.size();
+        return loader.executeAsync(() -> allOf(update(insertions), delete(removals)))
+                .thenApply(v -> insertions.size()+removals.size());
     }
 
 
@@ -194,7 +212,7 @@ final class _StoreWriter {
                                 .orElseGet(() -> loader.retrieve(value(query.model(object(
                                         Value.id(uri()),
                                         Value.shape(shape(query.model()))
-                                ))), list()).values())
+                                )))).values())
 
                         )
 
@@ -207,10 +225,9 @@ final class _StoreWriter {
     }
 
 
-    private boolean exist(final List<Value> resources) {
-        return loader.execute(() -> allItemsOf(list(resources.stream().map(v -> loader.fetch(id(v))))))
-                .thenApply(vs -> vs.stream().allMatch(present -> present))
-                .join();
+    private CompletableFuture<Boolean> exist(final List<Value> resources) {
+        return allItemsOf(list(resources.stream().map(v -> loader.fetch(id(v)))))
+                .thenApply(vs -> vs.stream().allMatch(present -> present));
     }
 
 
@@ -271,10 +288,17 @@ final class _StoreWriter {
     }
 
     private CompletableFuture<Void> _update(final URI id, final Shape shape, final Map<String, Value> fields) {
-        return allOf(
-                _remove(id, shape),
-                _insert(id, shape, fields)
-        );
+        return allOf(Stream.concat(
+
+                shape.clazzes()
+                        .map(types -> loader.insert(id, types))
+                        .stream(),
+
+                shape.properties().stream()
+                        .filter(property -> !property.foreign())
+                        .map(property -> _update(id, property, fields.getOrDefault(property.name(), Nil())))
+
+        ));
     }
 
     private CompletableFuture<Void> _mutate(final URI id, final Shape shape, final Map<String, Value> fields) {
@@ -295,10 +319,7 @@ final class _StoreWriter {
 
                         .filter(field -> !field.getKey().foreign())
 
-                        .map(field -> allOf(
-                                _remove(id, field.getKey()),
-                                _insert(id, field.getKey(), field.getValue())
-                        ))
+                        .map(field -> _update(id, field.getKey(), field.getValue()))
 
         ));
     }
@@ -316,11 +337,14 @@ final class _StoreWriter {
     }
 
 
-    private CompletableFuture<Void> _remove(final URI id, final Shape shape) {
-        return allOf(shape.properties().stream()
-                .filter(property -> !property.foreign())
-                .map(property -> _remove(id, property))
-        );
+    /*
+     * Replaces property values; embedded values are removed and reinserted, cascading removal to embedded frames,
+     * while other values are diffed against the stored state, so that only changed statements are written.
+     */
+    private CompletableFuture<Void> _update(final URI id, final Property property, final Value value) {
+        return property.embedded()
+                ? allOf(_remove(id, property), _insert(id, property, value))
+                : loader.update(id, property, value);
     }
 
     private CompletableFuture<Void> _remove(final URI id, final Property property) {
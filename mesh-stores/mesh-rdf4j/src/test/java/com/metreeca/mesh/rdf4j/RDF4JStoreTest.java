@@ -16,18 +16,292 @@
 
 package com.metreeca.mesh.rdf4j;
 
+import com.metreeca.mesh.Value;
+import com.metreeca.mesh.pipe.Store;
+import com.metreeca.mesh.pipe.StoreException;
+import com.metreeca.mesh.queries.Query;
+import com.metreeca.mesh.queries.Specs;
+import com.metreeca.mesh.queries.Table;
 import com.metreeca.mesh.test.stores.StoreTest;
+import com.metreeca.mesh.test.stores.StoreTestRetrieveValues;
 
+import org.eclipse.rdf4j.common.transaction.IsolationLevel;
+import org.eclipse.rdf4j.common.transaction.IsolationLevels;
+import org.eclipse.rdf4j.query.QueryLanguage;
+import org.eclipse.rdf4j.query.TupleQuery;
+import org.eclipse.rdf4j.repository.Repository;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.base.RepositoryConnectionWrapper;
+import org.eclipse.rdf4j.repository.base.RepositoryWrapper;
 import org.eclipse.rdf4j.repository.sail.SailRepository;
+import org.eclipse.rdf4j.sail.lucene.LuceneSail;
 import org.eclipse.rdf4j.sail.memory.MemoryStore;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
 
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+
+import static com.metreeca.mesh.Value.*;
+import static com.metreeca.mesh.queries.Criterion.criterion;
+import static com.metreeca.mesh.queries.Expression.expression;
+import static com.metreeca.mesh.queries.Probe.probe;
+import static com.metreeca.mesh.queries.Query.query;
+import static com.metreeca.mesh.queries.Transform.COUNT;
 import static com.metreeca.mesh.rdf4j.RDF4JStore.rdf4j;
+import static com.metreeca.shim.Collections.list;
+import static com.metreeca.shim.URIs.base;
+
+import static java.util.concurrent.CompletableFuture.supplyAsync;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 
 final class RDF4JStoreTest extends StoreTest {
 
     @Override protected RDF4JStore store() {
+        return memory();
+    }
+
+
+    static RDF4JStore memory() {
         return rdf4j(new SailRepository(new MemoryStore()));
     }
 
+    static Query employees() {
+        return query().model(object(shape(Employee), id(base()), field(label, string(""))));
+    }
+
+
+    /*
+     * Creates a store on a repository whose connections are decorated by the specified wrapper, which receives the
+     * decorated repository to be reported by the wrapped connection.
+     */
+    private static RDF4JStore wrapped(
+            final Repository repository,
+            final BiFunction<Repository, RepositoryConnection, RepositoryConnection> wrapper
+    ) {
+        return rdf4j(new RepositoryWrapper(repository) {
+
+            @Override public RepositoryConnection getConnection() {
+                return wrapper.apply(this, super.getConnection());
+            }
+
+        });
+    }
+
+    private static void assertWriteOnlyChangedStatements(final RDF4JStore store) {
+
+        final Value employee=Employee(item("/employees/1702")).orElseThrow();
+
+        assertThat(store.update(employee)).isEqualTo(1);
+
+        assertThat(store.updates()).satisfies(updates -> {
+            assertThat(updates.added()).isZero();
+            assertThat(updates.removed()).isZero();
+            assertThat(updates.saved()).isPositive();
+        });
+    }
+
+
+    @Test void testCountEmptyNestedCollections() {
+
+        final Value employees=populate(store()).retrieve(value(query().model(object(
+                shape(Employee),
+                id(base()),
+                field(reports, value(query(value(new Specs(Employee, list(
+                        probe("value", expression().pipe(COUNT), Integer())
+                ))))))
+        ))));
+
+        assertThat(employees.array().orElseThrow())
+
+                .allSatisfy(employee -> assertThat(employee.get(reports).value(Table.class))
+                        .hasValueSatisfying(table -> assertThat(table.rows()).hasSize(1))
+                )
+
+                .anySatisfy(employee -> assertThat(employee.get(reports).value(Table.class))
+                        .hasValueSatisfying(table -> assertThat(table.rows().getFirst().value("value"))
+                                .contains(integer(0))
+                        )
+                );
+    }
+
+
+    @Test void testWriteOnlyChangedStatements() {
+        assertWriteOnlyChangedStatements(populate(store()));
+    }
+
+    @Test void testWriteOnlyChangedStatementsWithLocalLookups() {
+        assertWriteOnlyChangedStatements(populate(store().local(true)));
+    }
+
+
+    @Test void testStreamQueryPages() {
+
+        final RDF4JStore store=populate(store().chunk(3));
+
+        final Value model=value(employees()
+                .offset(2)
+                .limit(10)
+        );
+
+        try ( final Stream<Value> items=store.stream(model) ) {
+            assertThat(items.toList()).isEqualTo(store.retrieve(model).array().orElseThrow());
+        }
+    }
+
+
+    @Test void testStreamSortedQueryPages() {
+
+        final RDF4JStore store=populate(store().chunk(3));
+
+        final Value model=value(employees()
+                .where(label, criterion().order(-1))
+                .offset(1)
+        );
+
+        try ( final Stream<Value> items=store.stream(model) ) {
+            assertThat(items.toList()).isEqualTo(store.retrieve(model).array().orElseThrow());
+        }
+    }
+
+
+    @Test void testPushFullTextSearchDown() {
+
+        final List<String> queries=new CopyOnWriteArrayList<>();
+
+        final LuceneSail lucene=new LuceneSail();
+
+        lucene.setParameter(LuceneSail.LUCENE_RAMDIR_KEY, "true");
+        lucene.setBaseSail(new MemoryStore());
+
+        final RDF4JStore store=wrapped(new SailRepository(lucene), (repository, connection) ->
+                new RepositoryConnectionWrapper(repository, connection) {
+
+                    @Override public TupleQuery prepareTupleQuery(
+                            final QueryLanguage ql, final String query, final String base
+                    ) {
+
+                        queries.add(query);
+
+                        return super.prepareTupleQuery(ql, query, base);
+                    }
+
+                }
+        ).search(list(URI.create("http://www.w3.org/2000/01/rdf-schema#label")));
+
+        populate(store);
+
+        final Value model=value(employees()
+                .where(label, criterion().like("bondur"))
+        );
+
+        final Value expected=populate(store()).retrieve(model);
+
+        queries.clear();
+
+        assertThat(store.retrieve(model)).isEqualTo(expected);
+        assertThat(expected.array()).hasValueSatisfying(items -> assertThat(items).isNotEmpty());
+        assertThat(queries).anySatisfy(sparql -> assertThat(sparql)
+                .contains("<http://www.openrdf.org/contrib/lucenesail#matches>")
+        );
+    }
+
+
+    @Test void testGroupConcurrentWrites() {
+
+        final RDF4JStore store=populate(store().group(Duration.ofMillis(100)));
+
+        final Value employee=Employee(item("/employees/1702")).orElseThrow();
+
+        final CompletableFuture<Integer> valid=supplyAsync(() -> store.update(employee));
+        final CompletableFuture<Integer> invalid=supplyAsync(() -> store.update(
+                object(shape(Employee), id(item("/employees/1702")))
+        ));
+
+        assertThat(valid.join()).isEqualTo(1);
+        assertThatThrownBy(invalid::join).hasCauseInstanceOf(StoreException.class);
+    }
+
+
+    @Test void testReadWithConfiguredIsolation() {
+
+        final List<Object> begins=new CopyOnWriteArrayList<>();
+
+        final RDF4JStore store=wrapped(new SailRepository(new MemoryStore()), (repository, connection) ->
+                new RepositoryConnectionWrapper(repository, connection) {
+
+                    @Override public void begin() {
+
+                        begins.add(getIsolationLevel());
+
+                        super.begin();
+                    }
+
+                    @Override public void begin(final IsolationLevel level) {
+
+                        begins.add(level);
+
+                        super.begin(level);
+                    }
+
+                }
+        );
+
+        populate(store);
+
+        final Value model=value(employees().limit(5));
+
+        begins.clear();
+
+        final Value expected=store.retrieve(model);
+
+        assertThat(begins).containsExactly(IsolationLevels.SNAPSHOT_READ);
+
+        begins.clear();
+
+        assertThat(store.isolation(null).retrieve(model)).isEqualTo(expected);
+        assertThat(begins).isEmpty();
+
+        begins.clear();
+
+        assertThat(store.isolation(IsolationLevels.NONE).execute(true, s -> s.retrieve(model))).isEqualTo(expected);
+        assertThat(begins).containsExactly(IsolationLevels.NONE);
+    }
+
+
+    @Nested
+    final class ParallelRetrieve extends StoreTestRetrieveValues {
+
+        @Override public Store store() {
+            return RDF4JStoreTest.this.store().parallel(true).isolation(IsolationLevels.NONE);
+        }
+
+    }
+
+    @Nested
+    final class ConstructRetrieve extends StoreTestRetrieveValues {
+
+        @Override public Store store() {
+            return RDF4JStoreTest.this.store().construct(true);
+        }
+
+    }
+
+    @Nested
+    final class LocalRetrieve extends StoreTestRetrieveValues {
+
+        @Override public Store store() {
+            return RDF4JStoreTest.this.store().local(true);
+        }
+
+    }
+
 }
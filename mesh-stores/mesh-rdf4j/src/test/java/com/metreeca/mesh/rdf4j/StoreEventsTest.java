@@ -0,0 +1,127 @@
+/*
+ * Copyright © 2022-2025 Metreeca srl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.metreeca.mesh.rdf4j;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+import org.eclipse.rdf4j.repository.sail.SailRepository;
+import org.eclipse.rdf4j.sail.memory.MemoryStore;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static com.metreeca.mesh.Value.*;
+import static com.metreeca.mesh.queries.Query.query;
+import static com.metreeca.mesh.rdf4j.RDF4JStore.rdf4j;
+import static com.metreeca.mesh.test.stores.StoreTest.Employee;
+import static com.metreeca.mesh.test.stores.StoreTest.label;
+import static com.metreeca.mesh.test.stores.StoreTest.populate;
+import static com.metreeca.shim.URIs.base;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+final class StoreEventsTest {
+
+    private static final String OPERATION="com.metreeca.mesh.rdf4j.Operation";
+    private static final String QUERY="com.metreeca.mesh.rdf4j.Query";
+    private static final String UPDATE="com.metreeca.mesh.rdf4j.Update";
+
+
+    /*
+     * Records store events until at least one event of each of the expected types is received and no further events
+     * are pending.
+     */
+    private static Map<String, List<RecordedEvent>> record(
+            final Set<String> expected, final Runnable task
+    ) throws InterruptedException {
+
+        try ( final RecordingStream stream=new RecordingStream() ) {
+
+            final BlockingQueue<RecordedEvent> events=new LinkedBlockingQueue<>();
+
+            for (final String name : List.of(OPERATION, QUERY, UPDATE)) {
+                stream.enable(name).withoutThreshold();
+                stream.onEvent(name, events::add);
+            }
+
+            stream.startAsync();
+
+            task.run();
+
+            final Map<String, List<RecordedEvent>> recorded=new HashMap<>();
+
+            for (RecordedEvent event; (event=recorded.keySet().containsAll(expected)
+                    ? events.poll(1, TimeUnit.SECONDS) // drain events flushed along with the expected ones
+                    : events.poll(10, TimeUnit.SECONDS)
+            ) != null; ) {
+                recorded.computeIfAbsent(event.getEventType().getName(), name -> new ArrayList<>()).add(event);
+            }
+
+            return recorded;
+
+        }
+    }
+
+
+    //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    @Test void testRecordWrites() throws InterruptedException {
+
+        final Map<String, List<RecordedEvent>> events=record(Set.of(OPERATION, UPDATE), () ->
+                populate(rdf4j(new SailRepository(new MemoryStore())))
+        );
+
+        assertThat(events.get(OPERATION)).anySatisfy(event -> {
+            assertThat(event.getInt("rounds")).isPositive();
+            assertThat(event.getLong("statements")).isPositive();
+        });
+
+        assertThat(events.get(UPDATE)).anySatisfy(event ->
+                assertThat(event.getLong("statements")).isPositive()
+        );
+    }
+
+    @Test void testRecordReads() throws InterruptedException {
+
+        final RDF4JStore store=populate(rdf4j(new SailRepository(new MemoryStore())));
+
+        final Map<String, List<RecordedEvent>> events=record(Set.of(OPERATION, QUERY), () ->
+                store.retrieve(value(query()
+                        .model(object(shape(Employee), id(base()), field(label, string(""))))
+                        .limit(5)
+                ))
+        );
+
+        assertThat(events.get(OPERATION)).singleElement().satisfies(event -> {
+            assertThat(event.getInt("rounds")).isPositive();
+            assertThat(event.getLong("queries")).isPositive();
+            assertThat(event.getLong("rows")).isPositive();
+            assertThat(event.getLong("statements")).isZero();
+        });
+
+        assertThat(events.get(QUERY)).anySatisfy(event -> {
+            assertThat(event.getString("worker")).isEqualTo(RDF4JMetrics.Worker.SELECTOR.name());
+            assertThat(event.getInt("hash")).isNotZero();
+            assertThat(event.getInt("bytes")).isPositive();
+            assertThat(event.getLong("rows")).isPositive();
+        });
+    }
+
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright © 2022-2025 Metreeca srl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.metreeca.mesh.rdf4j;
+
+import com.metreeca.mesh.pipe.Store;
+import com.metreeca.mesh.test.stores.StoreTestRetrieveValues;
+
+import static com.metreeca.mesh.rdf4j.RDF4JStoreTest.memory;
+
+final class StoreHierarchyTest extends StoreTestRetrieveValues {
+
+    @Override public Store store() {
+        return memory().hierarchy(true);
+    }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright © 2022-2025 Metreeca srl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.metreeca.mesh.rdf4j;
+
+import com.metreeca.mesh.Value;
+import com.metreeca.mesh.pipe.StoreException;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.metreeca.mesh.Value.*;
+import static com.metreeca.mesh.queries.Query.query;
+import static com.metreeca.mesh.rdf4j.RDF4JStoreTest.employees;
+import static com.metreeca.mesh.rdf4j.RDF4JStoreTest.memory;
+import static com.metreeca.mesh.test.stores.StoreTest.Office;
+import static com.metreeca.mesh.test.stores.StoreTest.label;
+import static com.metreeca.mesh.test.stores.StoreTest.populate;
+import static com.metreeca.shim.URIs.base;
+
+import static java.util.stream.Collectors.toMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+final class StoreLimitsTest {
+
+    @Test void testGuardQueryResultSize() {
+
+        final RDF4JStore store=populate(memory());
+
+        final Value model=value(employees());
+
+        assertThat(store.limits(RDF4JLimits.limits().page(3)).retrieve(model).array())
+                .hasValueSatisfying(items -> assertThat(items).hasSize(3));
+
+        assertThat(store.limits(RDF4JLimits.limits().max(4)).retrieve(value(employees().limit(10))).array())
+                .hasValueSatisfying(items -> assertThat(items).hasSize(4));
+
+        assertThatThrownBy(() -> store.limits(RDF4JLimits.limits().rows(2)).retrieve(model))
+                .isInstanceOf(StoreException.class);
+    }
+
+    @Test void testPageNestedCollectionsForEachResource() {
+
+        final RDF4JStore store=populate(memory());
+
+        final Value model=value(query().model(object(
+                shape(Office),
+                id(base()),
+                field(label, string("")),
+                field(employees, value(query(object(
+                        id(base()),
+                        field(label, string(""))
+                ))))
+        )));
+
+        final Map<Optional<URI>, List<Value>> expected=store.retrieve(model).array().orElseThrow().stream()
+                .collect(toMap(Value::id, office -> office.get(employees).array().orElseThrow()));
+
+        final List<Value> actual=store.limits(RDF4JLimits.limits().page(2)).retrieve(model).array().orElseThrow();
+
+        assertThat(actual).hasSize(2)
+
+                .allSatisfy(office -> {
+
+                    final List<Value> members=expected.get(office.id());
+
+                    assertThat(office.get(employees).array())
+                            .contains(members.subList(0, Math.min(2, members.size())));
+
+                })
+
+                .anySatisfy(office -> assertThat(expected.get(office.id())).hasSizeGreaterThan(2));
+    }
+
+    @Test void testIgnoreQueryLimitsOnWrites() {
+
+        final RDF4JStore store=populate(memory());
+
+        final Value model=value(employees());
+
+        final int employees=store.retrieve(model).array().orElseThrow().size();
+
+        assertThat(employees).isGreaterThan(3);
+
+        assertThat(store.limits(RDF4JLimits.limits().page(3).rows(2)).remove(model)).isEqualTo(employees);
+
+        assertThat(store.retrieve(model).array())
+                .hasValueSatisfying(items -> assertThat(items).isEmpty());
+    }
+
+}
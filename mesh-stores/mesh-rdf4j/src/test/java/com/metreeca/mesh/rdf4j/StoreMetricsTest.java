@@ -0,0 +1,112 @@
+/*
+ * Copyright © 2022-2025 Metreeca srl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.metreeca.mesh.rdf4j;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.metreeca.mesh.Value.*;
+import static com.metreeca.mesh.rdf4j.RDF4JStoreTest.employees;
+import static com.metreeca.mesh.rdf4j.RDF4JStoreTest.memory;
+import static com.metreeca.mesh.test.stores.StoreTest.Employee;
+import static com.metreeca.mesh.test.stores.StoreTest.item;
+import static com.metreeca.mesh.test.stores.StoreTest.label;
+import static com.metreeca.mesh.test.stores.StoreTest.populate;
+import static com.metreeca.mesh.test.stores.StoreTest.supervisor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+final class StoreMetricsTest {
+
+    /*
+     * Creates a populated store reporting operation measurements to the specified collection.
+     */
+    private static RDF4JStore metered(final Collection<RDF4JMetrics.Stats> operations) {
+        return populate(memory().metrics(new RDF4JMetrics() {
+
+            @Override public void operation(final RDF4JMetrics.Stats stats) {
+                operations.add(stats);
+            }
+
+        }));
+    }
+
+
+    //̸/////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    @Test void testReportMetrics() {
+
+        final List<RDF4JMetrics.Stats> operations=new CopyOnWriteArrayList<>();
+
+        final RDF4JStore store=metered(operations);
+
+        assertThat(operations).anySatisfy(stats -> assertThat(stats.statements()).isPositive());
+
+        operations.clear();
+
+        store.retrieve(value(employees().limit(5)));
+
+        assertThat(operations).singleElement().satisfies(stats -> {
+            assertThat(stats.rounds()).isPositive();
+            assertThat(stats.selections()).isPositive();
+            assertThat(stats.rows()).isPositive();
+            assertThat(stats.bytes()).isPositive();
+            assertThat(stats.statements()).isZero();
+        });
+    }
+
+    @Test void testPrefetchNestedFrames() {
+
+        final List<RDF4JMetrics.Stats> operations=new CopyOnWriteArrayList<>();
+
+        final RDF4JStore store=metered(operations);
+
+        operations.clear();
+
+        store.retrieve(object(
+                id(item("/employees/1702")),
+                shape(Employee),
+                field(label, string(""))
+        ));
+
+        final int flat=operations.getFirst().rounds();
+
+        operations.clear();
+
+        assertThat(store.retrieve(object(
+
+                id(item("/employees/1702")),
+                shape(Employee),
+
+                field(supervisor, object(
+                        field(label, string("")),
+                        field(supervisor, object(
+                                field(label, string(""))
+                        ))
+                ))
+
+        )).get(supervisor).get(label)).isEqualTo(string("Gerard Bondur"));
+
+        assertThat(operations).singleElement().satisfies(stats ->
+                assertThat(stats.rounds()).isEqualTo(flat)
+        );
+    }
+
+}
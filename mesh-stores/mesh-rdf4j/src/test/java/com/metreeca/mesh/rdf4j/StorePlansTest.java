@@ -0,0 +1,63 @@
+/*
+ * Copyright © 2022-2025 Metreeca srl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.metreeca.mesh.rdf4j;
+
+import com.metreeca.mesh.Value;
+
+import org.junit.jupiter.api.Test;
+
+import static com.metreeca.mesh.Value.*;
+import static com.metreeca.mesh.queries.Criterion.criterion;
+import static com.metreeca.mesh.rdf4j.RDF4JStoreTest.employees;
+import static com.metreeca.mesh.rdf4j.RDF4JStoreTest.memory;
+import static com.metreeca.mesh.test.stores.StoreTest.label;
+import static com.metreeca.mesh.test.stores.StoreTest.populate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+final class StorePlansTest {
+
+    @Test void testReuseQueryPlans() {
+
+        final RDF4JStore store=populate(memory());
+
+        final Value model=value(employees().limit(5));
+
+        final Value first=store.retrieve(model);
+        final RDF4JStore.Plans plans=store.plans();
+
+        assertThat(store.retrieve(model)).isEqualTo(first);
+        assertThat(store.plans().hits()).isGreaterThan(plans.hits());
+        assertThat(store.plans().misses()).isEqualTo(plans.misses());
+    }
+
+    @Test void testShareQueryPlansAmongConstants() {
+
+        final RDF4JStore store=populate(memory());
+
+        final Value first=value(employees().where(label, criterion().gte(string("A"))));
+        final Value second=value(employees().where(label, criterion().gte(string("M"))));
+
+        store.retrieve(first);
+
+        final RDF4JStore.Plans plans=store.plans();
+
+        assertThat(store.retrieve(second)).isEqualTo(populate(memory()).retrieve(second));
+        assertThat(store.plans().misses()).isEqualTo(plans.misses());
+    }
+
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright © 2022-2025 Metreeca srl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.metreeca.mesh.rdf4j;
+
+import com.metreeca.mesh.Value;
+import com.metreeca.mesh.pipe.StoreException;
+
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.sail.SailRepository;
+import org.eclipse.rdf4j.sail.memory.MemoryStore;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.stream.Stream;
+
+import static com.metreeca.mesh.Value.value;
+import static com.metreeca.mesh.rdf4j.RDF4JStoreTest.employees;
+import static com.metreeca.mesh.rdf4j.RDF4JStoreTest.memory;
+import static com.metreeca.mesh.test.stores.StoreTest.populate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+final class StorePoolTest {
+
+    private _StorePool pool(final RDF4JPool pool) {
+        return new _StorePool(new SailRepository(new MemoryStore()), pool);
+    }
+
+
+    @Test void testPrefillMinimumIdleConnections() {
+        try ( final _StorePool pool=pool(RDF4JPool.pool().min(2)) ) {
+
+            final RepositoryConnection connection=pool.borrow();
+
+            assertThat(pool.stats().idle()).isEqualTo(1);
+
+            pool.release(connection);
+
+            assertThat(pool.stats().idle()).isEqualTo(2);
+
+        }
+    }
+
+    @Test void testEnforceMaximumSize() {
+        try ( final _StorePool pool=pool(RDF4JPool.pool().max(1).timeout(Duration.ofMillis(10))) ) {
+
+            final RepositoryConnection connection=pool.borrow();
+
+            assertThat(pool.stats().borrowed()).isEqualTo(1);
+            assertThatThrownBy(pool::borrow).isInstanceOf(StoreException.class);
+
+            pool.release(connection);
+
+            assertThat(pool.stats().borrowed()).isZero();
+
+        }
+    }
+
+    @Test void testShareCapacityWithLeases() {
+        try ( final _StorePool pool=pool(RDF4JPool.pool().max(2).timeout(Duration.ofMillis(10))) ) {
+
+            final RepositoryConnection spare=pool.lease();
+
+            assertThat(spare).isNotNull();
+
+            final RepositoryConnection connection=pool.borrow();
+
+            assertThat(pool.stats().borrowed()).isEqualTo(2);
+            assertThat(pool.lease()).isNull();
+            assertThatThrownBy(pool::borrow).isInstanceOf(StoreException.class);
+
+            pool.release(spare);
+
+            final RepositoryConnection reused=pool.borrow();
+
+            assertThat(pool.lease()).isNull();
+
+            pool.release(reused);
+            pool.release(connection);
+
+            assertThat(pool.stats().borrowed()).isZero();
+
+        }
+    }
+
+    @Test void testCloseConnectionsReleasedAfterClose() {
+
+        final _StorePool pool=pool(RDF4JPool.pool().min(1));
+
+        final RepositoryConnection connection=pool.borrow();
+
+        pool.close();
+
+        pool.release(connection);
+
+        assertThat(connection.isOpen()).isFalse();
+        assertThat(pool.stats().idle()).isZero();
+        assertThat(pool.lease()).isNull();
+        assertThatThrownBy(pool::borrow).isInstanceOf(StoreException.class);
+    }
+
+
+    @Test void testReuseReleasedConnections() {
+        try ( final _StorePool pool=pool(RDF4JPool.pool()) ) {
+
+            final RepositoryConnection connection=pool.borrow();
+
+            pool.release(connection);
+
+            assertThat(pool.borrow()).isSameAs(connection);
+            assertThat(pool.stats().borrows()).isEqualTo(2);
+
+        }
+    }
+
+    @Test void testEvictStaleConnectionsOnBorrow() throws InterruptedException {
+        try ( final _StorePool pool=pool(RDF4JPool.pool().idle(Duration.ofMillis(50))) ) {
+
+            final RepositoryConnection connection=pool.borrow();
+
+            pool.release(connection);
+
+            Thread.sleep(100);
+
+            assertThat(pool.borrow()).isNotSameAs(connection);
+            assertThat(connection.isOpen()).isFalse();
+
+        }
+    }
+
+
+    @Test void testRollbackDanglingTransactionsOnRelease() {
+        try ( final _StorePool pool=pool(RDF4JPool.pool()) ) {
+
+            final RepositoryConnection connection=pool.borrow();
+
+            connection.begin();
+            connection.add(RDF.TYPE, RDF.TYPE, RDFS.RESOURCE);
+
+            pool.release(connection);
+
+            final RepositoryConnection reused=pool.borrow();
+
+            assertThat(reused).isSameAs(connection);
+            assertThat(reused.isActive()).isFalse();
+            assertThat(reused.isEmpty()).isTrue();
+
+        }
+    }
+
+
+    @Test void testReleaseConnectionsOfExhaustedStreams() {
+
+        final RDF4JStore store=populate(memory().chunk(3).pool(RDF4JPool.pool()
+                .max(1)
+                .timeout(Duration.ofMillis(100))
+        ));
+
+        final Value model=value(employees().limit(10));
+
+        for (int n=0; n < 3; ++n) { // consumed but never closed
+            assertThat(store.stream(model).toList()).isEqualTo(store.retrieve(model).array().orElseThrow());
+        }
+
+        try ( final Stream<Value> items=store.stream(model) ) { // abandoned, but closed
+            assertThat(items.findFirst()).isPresent();
+        }
+
+        assertThat(store.retrieve(model).array()).hasValueSatisfying(items -> assertThat(items).hasSize(10));
+    }
+
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright © 2022-2025 Metreeca srl
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.metreeca.mesh.rdf4j;
+
+import com.metreeca.mesh.Value;
+import com.metreeca.mesh.pipe.StoreException;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static com.metreeca.mesh.Value.*;
+import static com.metreeca.mesh.rdf4j.RDF4JStoreTest.employees;
+import static com.metreeca.mesh.rdf4j.RDF4JStoreTest.memory;
+import static com.metreeca.mesh.test.stores.StoreTest.Employee;
+import static com.metreeca.mesh.test.stores.StoreTest.item;
+import static com.metreeca.mesh.test.stores.StoreTest.populate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+final class StoreThrottleTest {
+
+    private static CompletableFuture<Void> all(final _StoreThrottle throttle, final int count, final Runnable task) {
+        return CompletableFuture.allOf(IntStream.range(0, count)
+                .mapToObj(i -> throttle.async(task))
+                .toArray(CompletableFuture[]::new)
+        );
+    }
+
+
+    @Test void testLimitConcurrentTasks() throws Exception {
+
+        final ExecutorService executor=Executors.newFixedThreadPool(8);
+
+        try {
+
+            final _StoreThrottle throttle=new _StoreThrottle(executor, 2);
+
+            final AtomicInteger running=new AtomicInteger();
+            final AtomicInteger peak=new AtomicInteger();
+
+            all(throttle, 20, () -> {
+
+                peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+
+                try { Thread.sleep(5); } catch ( final InterruptedException ignored ) { }
+
+                running.decrementAndGet();
+
+            }).get(5, TimeUnit.SECONDS);
+
+            assertThat(peak.get()).isBetween(1, 2);
+
+        } finally {
+
+            executor.shutdownNow();
+
+        }
+    }
+
+    @Test void testQueueTasksRejectedBySaturatedExecutor() throws Exception {
+
+        final ExecutorService executor=new ThreadPoolExecutor( // rejects tasks while its only thread is busy
+                1, 1, 0, TimeUnit.MILLISECONDS, new SynchronousQueue<>()
+        );
+
+        try {
+
+            final _StoreThrottle throttle=new _StoreThrottle(executor, 4);
+
+            final Thread caller=Thread.currentThread();
+            final Set<Thread> threads=ConcurrentHashMap.newKeySet();
+            final AtomicInteger completed=new AtomicInteger();
+
+            all(throttle, 20, () -> {
+
+                threads.add(Thread.currentThread());
+
+                try { Thread.sleep(1); } catch ( final InterruptedException ignored ) { }
+
+                completed.incrementAndGet();
+
+            }).get(10, TimeUnit.SECONDS);
+
+            assertThat(completed.get()).isEqualTo(20);
+            assertThat(threads).doesNotContain(caller);
+
+        } finally {
+
+            executor.shutdownNow();
+
+        }
+    }
+
+
+    @Test void testExecuteAsynchronously() {
+
+        final RDF4JStore store=populate(memory());
+
+        final Value employee=Employee(item("/employees/1702")).orElseThrow();
+        final Value model=value(employees().limit(5));
+
+        assertThat(store.updateAsync(employee).toCompletableFuture().join()).isEqualTo(1);
+        assertThat(store.retrieveAsync(model).toCompletableFuture().join()).isEqualTo(store.retrieve(model));
+    }
+
+    @Test void testFailAsynchronousTasks() {
+
+        final RDF4JStore store=populate(memory());
+
+        final Value employee=Employee(item("/employees/1702")).orElseThrow();
+        final Value invalid=object(shape(Employee), id(item("/employees/1702")));
+
+        assertThatThrownBy(() -> store.updateAsync(invalid).toCompletableFuture().join())
+                .hasCauseInstanceOf(StoreException.class);
+
+        final CompletableFuture<Integer> nested=store.execute(s -> s.updateAsync(invalid).toCompletableFuture());
+
+        assertThat(nested.handle((value, error) -> error).join()).isInstanceOf(StoreException.class);
+
+        assertThat(store.execute(s -> s.updateAsync(employee).toCompletableFuture().join())).isEqualTo(1);
+        assertThat(store.updateAsync(employee).toCompletableFuture().join()).isEqualTo(1);
+    }
+
+    @Test void testExecuteAsynchronouslyOnBoundedExecutors() {
+
+        final ExecutorService executor=Executors.newFixedThreadPool(1);
+
+        try {
+
+            final RDF4JStore store=populate(memory().executor(executor).concurrency(1));
+
+            final Value employee=Employee(item("/employees/1702")).orElseThrow();
+            final Value model=value(employees().limit(5));
+
+            final List<CompletableFuture<?>> operations=Stream.of(1, 2, 3)
+                    .<CompletableFuture<?>>flatMap(n -> Stream.of(
+                            store.updateAsync(employee).toCompletableFuture(),
+                            store.retrieveAsync(model).toCompletableFuture()
+                    ))
+                    .toList();
+
+            assertThat(CompletableFuture.allOf(operations.toArray(CompletableFuture[]::new))
+                    .orTimeout(10, TimeUnit.SECONDS)
+            ).succeedsWithin(Duration.ofSeconds(15));
+
+        } finally {
+
+            executor.shutdownNow();
+
+        }
+    }
+
+}